@@ -1,123 +1,786 @@
-package com.delmesoft.httpserver;
-
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.util.logging.Level;
-
-import com.delmesoft.httpserver.HttpResponse.Status;
-
-/*
- * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
- * All rights reserved.
- * 
- * Redistribution and use in source and binary forms, with or without
- * modification, are permitted provided that the following conditions are met:
- * 
- * 1. Redistributions of source code must retain the above copyright notice, this
- *    list of conditions and the following disclaimer.
- * 
- * 2. Redistributions in binary form must reproduce the above copyright notice,
- *    this list of conditions and the following disclaimer in the documentation
- *    and/or other materials provided with the distribution.
- * 
- * 3. Neither the name of the copyright holder nor the names of its
- *    contributors may be used to endorse or promote products derived from
- *    this software without specific prior written permission.
- *    	
- * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
- * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
- * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
- * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
- * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
- * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
- * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
- * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
- * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
- * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
- */
-public class HttpClient implements Runnable {
-	
-	private final long id;
-	private final Socket socket;
-	private final HttpServerImpl httpServer;
-	private boolean connected;
-	
-	public HttpClient(long id, Socket socket, HttpServerImpl httpServer) {
-		this.id = id;
-		this.socket = socket;
-		this.httpServer = httpServer;
-	}
-
-	@Override
-	public synchronized void run() {
-		if (!isConnected()) {
-			try {
-				connected = true;
-				final Session session = new Session(socket);
-				
-				HttpRequest httpRequest = new HttpRequest();
-				httpRequest.setRemoteAddress((InetSocketAddress) socket.getRemoteSocketAddress());
-				httpRequest.setSession(session);
-				boolean keepAlive = true;
-				while(keepAlive && httpRequest.read()) {
-					HttpResponse httpResponse;
-					try {
-						httpResponse = httpServer.getHttpListener().onHttpRequest(httpRequest);
-						keepAlive = handleConnection(httpRequest, httpResponse);
-					} catch (Exception e) {
-						if(e instanceof HttpException) {
-							httpResponse = HttpResponse.build(((HttpException) e).getStatus());
-						} else {
-							HttpServer.log.log(Level.WARNING, "Internal Server Error", e);
-							httpResponse = HttpResponse.build(Status.INTERNAL_SERVER_ERROR);
-						}
-						httpResponse.addHeader("Connection", "close");
-						keepAlive = false;
-					}
-					httpResponse.setSession(session);
-					httpServer.getHttpListener().onHttpResponse(httpResponse);
-				}
-			} catch (Exception e) { // ignore
-				// e.printStackTrace();
-			} finally {
-				disconnect();
-			}
-		}
-	}
-	
-	private boolean handleConnection(HttpRequest httpRequest, HttpResponse httpResponse) {
-		String connection = httpResponse.getHeader("Connection");
-		if (connection == null) {
-			connection = httpRequest.getHeader("Connection");
-			if (connection == null 
-			|| !connection.contains("keep-alive")) {
-				httpResponse.addHeader("Connection", "close");
-				return false;
-			}
-			httpResponse.addHeader("Connection", "keep-alive");
-			return true;
-		}
-		return connection.equals("keep-alive");
-	}
-
-	public synchronized boolean isConnected() {
-		return connected;
-	}
-
-	public synchronized void disconnect() {
-		if (isConnected()) {
-			try {
-				socket.close(); // Closing this socket will also close the socket's InputStream and OutputStream
-			} catch (Exception ignore) {
-			} finally {
-				connected = false;
-				httpServer.removeClient(this);
-			}
-		}
-	}
-
-	public long getId() {
-		return id;
-	}
-
-}
+package com.delmesoft.httpserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+import com.delmesoft.httpserver.HttpResponse.Status;
+import com.delmesoft.httpserver.HttpServerImpl.Engine;
+import com.delmesoft.httpserver.utils.AdaptiveLimiter;
+import com.delmesoft.httpserver.utils.BodyInputStream.ContentTooLargeException;
+import com.delmesoft.httpserver.utils.PipelineOutputStream;
+import com.delmesoft.httpserver.utils.RequestParser;
+import com.delmesoft.httpserver.utils.TimerWheel;
+import com.delmesoft.httpserver.utils.TimerWheel.Timeout;
+import com.delmesoft.httpserver.utils.Utils;
+import com.delmesoft.httpserver.utils.VirtualThreads;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class HttpClient implements Runnable {
+	
+	private final long id;
+	private final Socket socket;
+	protected final HttpServerImpl httpServer;
+	private final AtomicBoolean connected;
+	
+	private int requestCount;
+	
+	private PushbackInputStream inputStream;
+	private Session session;
+	
+	private Executor executor; // executor running the connection, null for the server executor
+	private volatile int handOffCount;
+	
+	public HttpClient(long id, Socket socket, HttpServerImpl httpServer) {
+		this.id = id;
+		this.socket = socket;
+		this.httpServer = httpServer;
+		this.connected = new AtomicBoolean();
+	}
+
+	@Override
+	public void run() {
+		if (connected.compareAndSet(false, true)) { // no monitor is held while blocked on socket I/O
+			try {
+				inputStream = new PushbackInputStream(socket.getInputStream(), RequestParser.BUFFER_SIZE); // request heads are read in bulk
+				session = new Session(socket, inputStream, new PipelineOutputStream(socket.getOutputStream()));
+			} catch (Exception e) {
+				disconnect();
+				return;
+			}
+			serve(null, null);
+		}
+	}
+	
+	/**
+	 * Continue serving the connection from an already decoded request, runs on the executor
+	 * the connection was handed to
+	 * @param httpRequest decoded request, null to read next one
+	 * @param httpResponse response completed asynchronously for the request, null if request must be handled
+	 */
+	protected void resume(HttpRequest httpRequest, HttpResponse httpResponse) {
+		serve(httpRequest, httpResponse);
+	}
+	
+	private void serve(HttpRequest httpRequest, HttpResponse httpResponse) {
+		final int handOffs = handOffCount;
+		try {
+			boolean decoded = httpRequest != null;
+			if (!decoded) {
+				httpRequest = newRequest((InetSocketAddress) socket.getRemoteSocketAddress(), session);
+			}
+			boolean keepAlive = true;
+			if (httpResponse != null) {
+				keepAlive = handleResponse(httpRequest, httpResponse, session);
+				decoded = false;
+			}
+			while(keepAlive && (decoded || awaitRequest(inputStream) && readHead(httpRequest))) {
+				decoded = false;
+				keepAlive = handlePipeline(httpRequest, session);
+				if (keepAlive && executor != null && handOffCount == handOffs && !hasBufferedRequest() && handOff(null, null)) {
+					break; // idle connections wait on the server executor, not on a route executor
+				}
+			}
+		} catch (HttpException e) { // malformed request or limit exceeded
+			if (handOffCount == handOffs) {
+				rejectRequest(e, session);
+			}
+		} catch (Exception e) { // ignore
+			// e.printStackTrace();
+		} finally {
+			if (handOffCount == handOffs) { // still owned by this thread
+				disconnect();
+			}
+		}
+	}
+	
+	/**
+	 * Create a request read from this connection, checked against the server limits
+	 * @param remoteAddress client address
+	 * @param session client session
+	 * @return request
+	 */
+	protected HttpRequest newRequest(InetSocketAddress remoteAddress, Session session) {
+		final HttpRequest httpRequest = new HttpRequest();
+		httpRequest.setRemoteAddress(remoteAddress);
+		httpRequest.setSession(session);
+		httpRequest.setLimits(httpServer.getRequestLimits());
+		return httpRequest;
+	}
+	
+	/**
+	 * Read a request head that must arrive within the header timeout counted from its first byte, a client
+	 * trickling bytes is not kept alive by the read timeout
+	 * @param httpRequest request
+	 * @return false at end of stream
+	 * @throws Exception Connection error, malformed request or limit exceeded
+	 */
+	private boolean readHead(HttpRequest httpRequest) throws Exception {
+		final RequestLimits limits = httpServer.getRequestLimits();
+		final int headerTimeout = limits.getHeaderTimeout();
+		final TimerWheel timerWheel = getTimerWheel();
+		if (headerTimeout <= 0 || timerWheel == null) {
+			return httpRequest.read();
+		}
+		final AtomicBoolean reading = new AtomicBoolean(true);
+		final Timeout timeout = timerWheel.schedule(() -> {
+			if (reading.compareAndSet(true, false)) {
+				limits.recordHeaderTimeout();
+				disconnect();
+			}
+		}, headerTimeout);
+		try {
+			return httpRequest.read();
+		} finally {
+			if (reading.compareAndSet(true, false)) {
+				timeout.cancel();
+			}
+		}
+	}
+	
+	/**
+	 * Answer a request rejected while being decoded, the connection is closed afterwards
+	 * @param e error carrying the status
+	 * @param session client session
+	 */
+	protected void rejectRequest(HttpException e, Session session) {
+		try {
+			final HttpResponse httpResponse = HttpResponse.build(e.getStatus() != null ? e.getStatus() : Status.BAD_REQUEST);
+			httpResponse.addHeader("Connection", "close");
+			httpResponse.setSession(session);
+			httpResponse.write();
+			session.getOutputStream().flush();
+			final InputStream is = session.getInputStream();
+			is.skip(is.available()); // avoid connection reset before client reads the answer
+		} catch (Exception ignore) {
+		}
+	}
+	
+	/**
+	 * Wait for the first byte of next request, idle connections are expired by the server timer wheel
+	 * instead of a socket timeout
+	 * @param is client input stream
+	 * @return false at end of stream
+	 * @throws IOException Connection error
+	 */
+	private boolean awaitRequest(PushbackInputStream is) throws IOException {
+		final int idleTimeout = httpServer.getIdleTimeout();
+		final TimerWheel timerWheel = getTimerWheel();
+		final Timeout timeout = idleTimeout > 0 && timerWheel != null ? timerWheel.schedule(this::disconnect, idleTimeout) : null;
+		final int b;
+		try {
+			socket.setSoTimeout(0);
+			b = is.read();
+		} finally {
+			if (timeout != null) {
+				timeout.cancel();
+			}
+		}
+		if (b < 0) {
+			return false;
+		}
+		is.unread(b);
+		socket.setSoTimeout(httpServer.getSocketTimeout()); // read timeout
+		return true;
+	}
+	
+	/**
+	 * Handle a decoded request and the complete requests pipelined behind it, responses of a batch
+	 * are written with a single flush
+	 * @param httpRequest decoded request
+	 * @param session client session
+	 * @return true if connection must remain open
+	 * @throws Exception Connection error
+	 */
+	protected boolean handlePipeline(HttpRequest httpRequest, Session session) throws Exception {
+		final HttpListener httpListener = httpServer.getHttpListener();
+		final PipelineOutputStream os = (PipelineOutputStream) session.getOutputStream();
+		final int maxDepth = Math.max(1, httpServer.getMaxPipelineDepth());
+		while (true) {
+			int depth = 0;
+			boolean keepAlive;
+			Executor target = executor; // executor for the request found on another route
+			boolean async = false;
+			try {
+				if (httpServer.isPipelineParallel() && isParallelizable(httpRequest) && (target = routeExecutor(httpRequest)) == executor 
+						&& !httpListener.isAsync(httpRequest) && hasBufferedRequest()) {
+					depth = handleParallel(httpRequest, session, maxDepth);
+					keepAlive = depth > 0;
+					depth = Math.abs(depth);
+				} else {
+					do {
+						final HttpResponse refused = httpRequest.isExpectContinue() ? expectContinue(httpListener, httpRequest) : null;
+						if (refused == null) {
+							if ((target = routeExecutor(httpRequest)) != executor) {
+								keepAlive = true;
+								break;
+							}
+							if (httpListener.isAsync(httpRequest)) {
+								keepAlive = async = true;
+								break;
+							}
+						}
+						++depth;
+						os.setDeferFlush(depth < maxDepth && !httpRequest.hasContent() && hasBufferedRequest()); // unread body bytes are not a request
+						keepAlive = refused != null ? writeResponse(httpListener, httpRequest, refused, session) : handleRequest(httpRequest, session);
+					} while (keepAlive && os.isDeferFlush() && (keepAlive = httpRequest.read()));
+				}
+			} finally {
+				os.setDeferFlush(false);
+			}
+			os.flush(); // batch goes out before another executor may take the connection over
+			httpServer.getPipelineStats().record(depth);
+			if (async) {
+				handleAsync(httpListener, httpRequest);
+				return false; // connection is parked until the response completes
+			}
+			if (target == executor || !keepAlive) {
+				return keepAlive;
+			}
+			if (handOff(target, httpRequest)) {
+				return false; // connection now belongs to the route executor
+			}
+			// route executor saturated
+			keepAlive = writeResponse(httpListener, httpRequest, serviceUnavailable(), session);
+			if (!keepAlive || !hasBufferedRequest() || !httpRequest.read()) {
+				return keepAlive;
+			}
+		}
+	}
+	
+	/**
+	 * Ask the listener whether the body of a request expecting 100 Continue is wanted, before it is sent
+	 * @return final response refusing the request, null to handle it
+	 */
+	private static HttpResponse expectContinue(HttpListener httpListener, HttpRequest httpRequest) {
+		try {
+			return httpListener.onExpectContinue(httpRequest);
+		} catch (Exception e) {
+			return errorResponse(httpRequest, e);
+		}
+	}
+	
+	/**
+	 * Call an asynchronous listener and release the connection, it is resumed on the executor that
+	 * was running it once the response completes. Buffered requests wait, so responses keep their order
+	 */
+	private void handleAsync(HttpListener httpListener, HttpRequest httpRequest) {
+		final Executor target = executor;
+		final String path = httpRequest.getPath(); // listeners may rewrite it
+		++handOffCount;
+		invokeAsync(httpListener, httpRequest).whenComplete((httpResponse, error) -> {
+			final Runnable continuation = () -> resume(httpRequest, asyncResponse(httpListener, httpRequest, path, httpResponse, error));
+			try {
+				execute(target, continuation);
+			} catch (RejectedExecutionException e) { // executor saturated, finish on the completing thread
+				continuation.run();
+			}
+		});
+	}
+	
+	private Executor routeExecutor(HttpRequest httpRequest) {
+		return httpServer.getHttpListener().getExecutor(httpRequest);
+	}
+	
+	/**
+	 * Hand the connection over to the executor of a route, current thread must not touch it afterwards
+	 * @param target route executor, null for the server executor
+	 * @param httpRequest decoded request the new executor starts with, null to wait for next one
+	 * @return false if executor rejected the connection
+	 */
+	private boolean handOff(Executor target, HttpRequest httpRequest) {
+		final Executor previous = executor;
+		executor = target;
+		++handOffCount;
+		try {
+			execute(target, () -> resume(httpRequest, null));
+			return true;
+		} catch (RejectedExecutionException e) {
+			executor = previous;
+			--handOffCount;
+			return false;
+		}
+	}
+	
+	private void execute(Executor target, Runnable task) {
+		if (target != null) {
+			target.execute(task);
+		} else if (httpServer.getEngine() == Engine.VIRTUAL) {
+			VirtualThreads.newThread(HttpClient.class.getName() + "-" + id, task).start();
+		} else {
+			httpServer.getExecutor().execute(task);
+		}
+	}
+	
+	/**
+	 * Return number of times the connection was handed to another executor, a thread that sees it change
+	 * after handling requests no longer owns the connection
+	 * @return hand off count
+	 */
+	protected final int getHandOffCount() {
+		return handOffCount;
+	}
+	
+	/**
+	 * Record that the connection is back on the server executor
+	 */
+	protected final void resetExecutor() {
+		executor = null;
+	}
+	
+	private HttpResponse serviceUnavailable() {
+		HttpResponse httpResponse = HttpResponse.build(Status.SERVICE_UNAVAILABLE);
+		httpResponse.addHeader("Retry-After", Integer.toString(httpServer.getRetryAfter()));
+		return httpResponse;
+	}
+	
+	/**
+	 * Decode buffered requests ahead and run their listeners concurrently, responses are written in request order
+	 * @return batch depth, negative if connection must be closed
+	 */
+	private int handleParallel(HttpRequest httpRequest, Session session, int maxDepth) throws Exception {
+		final HttpListener httpListener = httpServer.getHttpListener();
+		final List<HttpRequest> requests = new ArrayList<>();
+		requests.add(httpRequest);
+		boolean eof = false;
+		HttpException rejected = null;
+		while (requests.size() < maxDepth && isParallelizable(requests.get(requests.size() - 1)) && hasBufferedRequest()) {
+			final HttpRequest next = newRequest(httpRequest.getRemoteAddress(), session);
+			try {
+				if (!next.read()) {
+					eof = true;
+					break;
+				}
+			} catch (HttpException e) { // answered after the responses ahead of it
+				rejected = e;
+				break;
+			}
+			requests.add(next);
+		}
+		final List<Future<HttpResponse>> tasks = new ArrayList<>(requests.size());
+		for (int i = 1; i < requests.size(); ++i) {
+			final HttpRequest request = requests.get(i);
+			if (httpListener.isAsync(request)) { // completes on its own, waited for when its turn comes
+				final String path = request.getPath();
+				tasks.add(invokeAsync(httpListener, request).handle((httpResponse, error) -> asyncResponse(httpListener, request, path, httpResponse, error)));
+				continue;
+			}
+			final FutureTask<HttpResponse> task = new FutureTask<>(() -> invoke(httpListener, request));
+			final Executor routeExecutor = httpListener.getExecutor(request);
+			try {
+				(routeExecutor != null ? routeExecutor : httpServer.getExecutor()).execute(task);
+			} catch (RejectedExecutionException e) { // run when its turn comes
+			}
+			tasks.add(task);
+		}
+		final PipelineOutputStream os = (PipelineOutputStream) session.getOutputStream();
+		int depth = 0;
+		boolean keepAlive = true;
+		for (int i = 0; i < requests.size() && keepAlive; ++i) {
+			HttpResponse httpResponse;
+			if (i == 0) {
+				httpResponse = invoke(httpListener, httpRequest);
+			} else {
+				final Future<HttpResponse> task = tasks.get(i - 1);
+				if (task instanceof FutureTask) {
+					((FutureTask<HttpResponse>) task).run(); // no-op if already run by executor
+				}
+				httpResponse = task.get();
+			}
+			++depth;
+			os.setDeferFlush(i < requests.size() - 1);
+			keepAlive = writeResponse(httpListener, requests.get(i), httpResponse, session);
+		}
+		for (Future<HttpResponse> task : tasks) {
+			task.cancel(true); // connection closed before every response was written
+		}
+		if (rejected != null && keepAlive) {
+			throw rejected;
+		}
+		return keepAlive && !eof ? depth : -depth;
+	}
+	
+	private static boolean isParallelizable(HttpRequest httpRequest) {
+		final String method = httpRequest.getMethod();
+		return ("GET".equals(method) || "HEAD".equals(method)) 
+			&& !httpRequest.hasContent() 
+			&& httpRequest.getHeader("Upgrade") == null;
+	}
+	
+	/**
+	 * Check if next request is already buffered, so its response can be batched with current one
+	 * @return true if more request bytes are buffered
+	 * @throws IOException Connection error
+	 */
+	protected boolean hasBufferedRequest() throws IOException {
+		return inputStream != null && inputStream.available() > 0;
+	}
+	
+	/**
+	 * Dispatch a decoded request to the listener and write its response
+	 * @param httpRequest decoded request
+	 * @param session client session
+	 * @return true if connection must remain open
+	 * @throws Exception Connection error
+	 */
+	protected boolean handleRequest(HttpRequest httpRequest, Session session) throws Exception {
+		final HttpListener httpListener = httpServer.getHttpListener();
+		return writeResponse(httpListener, httpRequest, invoke(httpListener, httpRequest), session);
+	}
+	
+	/**
+	 * Answer a request of a non-blocking listener on the calling thread, without limiter or deadline
+	 * @param httpRequest decoded request
+	 * @param session client session
+	 * @return true if connection must remain open
+	 * @throws Exception Connection error
+	 */
+	protected boolean handleInline(HttpRequest httpRequest, Session session) throws Exception {
+		final HttpListener httpListener = httpServer.getHttpListener();
+		HttpResponse httpResponse;
+		try {
+			httpResponse = httpListener.onHttpRequest(httpRequest);
+		} catch (Exception e) {
+			httpResponse = errorResponse(httpRequest, e);
+		}
+		return writeResponse(httpListener, httpRequest, httpResponse, session);
+	}
+	
+	/**
+	 * Write the response of a request handled asynchronously
+	 * @param httpRequest request
+	 * @param httpResponse completed response
+	 * @param session client session
+	 * @return true if connection must remain open
+	 * @throws Exception Connection error
+	 */
+	protected boolean handleResponse(HttpRequest httpRequest, HttpResponse httpResponse, Session session) throws Exception {
+		final boolean keepAlive = writeResponse(httpServer.getHttpListener(), httpRequest, httpResponse, session);
+		session.getOutputStream().flush();
+		return keepAlive;
+	}
+	
+	/**
+	 * Call an asynchronous listener under the concurrency limit and request deadline
+	 * @return future completed with the response, exceptionally with DeadlineExceededException on timeout
+	 */
+	private CompletableFuture<HttpResponse> invokeAsync(HttpListener httpListener, HttpRequest httpRequest) {
+		final long remaining = remainingTime(httpListener, httpRequest);
+		if (remaining <= 0) { // waited in a queue past its deadline
+			return CompletableFuture.failedFuture(new DeadlineExceededException(true));
+		}
+		final AdaptiveLimiter limiter = httpServer.getConcurrencyLimiter();
+		if (limiter != null && !limiter.acquire()) {
+			return CompletableFuture.completedFuture(serviceUnavailable());
+		}
+		final long start = System.nanoTime();
+		CompletableFuture<HttpResponse> future;
+		try {
+			future = httpListener.onHttpRequestAsync(httpRequest);
+		} catch (Exception e) {
+			future = CompletableFuture.failedFuture(e);
+		}
+		final CompletableFuture<HttpResponse> result = new CompletableFuture<>();
+		final TimerWheel timerWheel = getTimerWheel();
+		final Timeout timeout;
+		if (remaining != Long.MAX_VALUE && timerWheel != null) {
+			final CompletableFuture<HttpResponse> listenerFuture = future;
+			timeout = timerWheel.schedule(() -> {
+				if (result.completeExceptionally(new DeadlineExceededException(false))) {
+					listenerFuture.cancel(true);
+				}
+			}, remaining);
+		} else {
+			timeout = null;
+		}
+		future.whenComplete((httpResponse, error) -> {
+			if (timeout != null) {
+				timeout.cancel();
+			}
+			if (error != null) {
+				result.completeExceptionally(error);
+			} else {
+				result.complete(httpResponse);
+			}
+		});
+		if (limiter != null) {
+			result.whenComplete((httpResponse, error) -> limiter.release(System.nanoTime() - start));
+		}
+		return result;
+	}
+	
+	private HttpResponse asyncResponse(HttpListener httpListener, HttpRequest httpRequest, String path, HttpResponse httpResponse, Throwable error) {
+		if (error instanceof CompletionException && error.getCause() != null) {
+			error = error.getCause();
+		}
+		if (error instanceof DeadlineExceededException) {
+			return deadlineExceeded(httpListener, httpRequest, path, ((DeadlineExceededException) error).dropped);
+		}
+		if (error != null) {
+			return errorResponse(httpRequest, error instanceof Exception ? (Exception) error : new Exception(error));
+		}
+		return httpResponse != null ? httpResponse : HttpResponse.build(Status.INTERNAL_SERVER_ERROR);
+	}
+	
+	private HttpResponse invoke(HttpListener httpListener, HttpRequest httpRequest) {
+		final AdaptiveLimiter limiter = httpServer.getConcurrencyLimiter();
+		if (limiter == null) {
+			return call(httpListener, httpRequest);
+		}
+		if (!limiter.acquire()) { // over the concurrency limit
+			return serviceUnavailable();
+		}
+		final long start = System.nanoTime();
+		try {
+			return call(httpListener, httpRequest);
+		} finally {
+			limiter.release(System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * Return time left until the request deadline
+	 * @return milliseconds, Long.MAX_VALUE if request has no timeout
+	 */
+	private long remainingTime(HttpListener httpListener, HttpRequest httpRequest) {
+		int timeout = httpListener.getRequestTimeout(httpRequest);
+		if (timeout < 0) {
+			timeout = httpServer.getRequestTimeout();
+		}
+		if (timeout == 0) {
+			return Long.MAX_VALUE;
+		}
+		return timeout - (System.nanoTime() - httpRequest.getReceivedTime()) / 1_000_000;
+	}
+	
+	private HttpResponse call(HttpListener httpListener, HttpRequest httpRequest) {
+		final long remaining = remainingTime(httpListener, httpRequest);
+		final String path = httpRequest.getPath(); // listeners may rewrite it
+		if (remaining <= 0) { // waited in a queue past its deadline
+			return deadlineExceeded(httpListener, httpRequest, path, true);
+		}
+		Deadline deadline = null;
+		final TimerWheel timerWheel = getTimerWheel();
+		if (remaining != Long.MAX_VALUE && timerWheel != null) {
+			deadline = new Deadline(Thread.currentThread());
+			deadline.timeout = timerWheel.schedule(deadline, remaining);
+		}
+		HttpResponse httpResponse;
+		Exception error = null;
+		try {
+			httpResponse = httpListener.onHttpRequest(httpRequest);
+		} catch (Exception e) {
+			httpResponse = null;
+			error = e;
+		}
+		if (deadline != null && deadline.finish()) { // any error is a consequence of the interrupt
+			return deadlineExceeded(httpListener, httpRequest, path, false);
+		}
+		return error != null ? errorResponse(httpRequest, error) : httpResponse;
+	}
+	
+	private static HttpResponse errorResponse(HttpRequest httpRequest, Exception e) {
+		if (e instanceof UncheckedIOException) { // body read through getParameters
+			e = ((UncheckedIOException) e).getCause();
+		}
+		HttpResponse httpResponse;
+		if(e instanceof HttpException) {
+			httpResponse = HttpResponse.build(((HttpException) e).getStatus());
+		} else if (e instanceof ContentTooLargeException) { // chunked body past the content limit
+			httpResponse = HttpResponse.build(Status.PAYLOAD_TOO_LARGE);
+		} else {
+			if (!httpRequest.isContentFailed()) { // a client gone within the body is closed silently
+				HttpServer.log.log(Level.WARNING, "Internal Server Error", e);
+			}
+			httpResponse = HttpResponse.build(Status.INTERNAL_SERVER_ERROR);
+		}
+		httpResponse.addHeader("Connection", "close");
+		return httpResponse;
+	}
+	
+	private HttpResponse deadlineExceeded(HttpListener httpListener, HttpRequest httpRequest, String path, boolean dropped) {
+		httpServer.recordDeadlineExceeded(dropped);
+		httpRequest.setPath(path);
+		try {
+			httpListener.onRequestTimeout(httpRequest, dropped);
+		} catch (Exception e) {
+			HttpServer.log.log(Level.WARNING, "Error notifying request timeout", e);
+		}
+		// a body left partially read by an interrupted handler closes the connection
+		return dropped ? serviceUnavailable() : HttpResponse.build(Status.GATEWAY_TIMEOUT);
+	}
+	
+	/**
+	 * Return timer wheel scheduling request deadlines of this connection
+	 * @return timer wheel, null if not available
+	 */
+	protected TimerWheel getTimerWheel() {
+		return httpServer.getTimerWheel();
+	}
+	
+	private boolean writeResponse(HttpListener httpListener, HttpRequest httpRequest, HttpResponse httpResponse, Session session) throws Exception {
+		if (httpRequest.isContentFailed()) { // client closed or reset the connection within the body
+			return false;
+		}
+		final boolean keepAlive = handleConnection(httpRequest, httpResponse);
+		httpResponse.setSession(session);
+		httpListener.onHttpResponse(httpResponse);
+		return keepAlive;
+	}
+	
+	private boolean handleConnection(HttpRequest httpRequest, HttpResponse httpResponse) {
+		String connection = httpResponse.getHeader("Connection");
+		if (connection == null) {
+			final int maxRequests = httpServer.getMaxRequestsPerConnection();
+			if (!isPersistent(httpRequest) 
+			|| (maxRequests > 0 && ++requestCount >= maxRequests)
+			|| !httpRequest.discardContent(httpServer.getMaxDiscardSize())) { // unread body would be decoded as next request
+				httpResponse.addHeader("Connection", "close");
+				return false;
+			}
+			httpResponse.addHeader("Connection", "keep-alive");
+			return true;
+		}
+		return connection.equalsIgnoreCase("keep-alive");
+	}
+	
+	/**
+	 * HTTP/1.1 connections are persistent unless closed, HTTP/1.0 ones only when keep-alive is requested
+	 * @param httpRequest request
+	 * @return true if connection should remain open
+	 */
+	private static boolean isPersistent(HttpRequest httpRequest) {
+		final String connection = httpRequest.getHeader("Connection");
+		if (Constants.PROTOCOL.equals(httpRequest.getProtocol())) {
+			return connection == null || !Utils.containsIgnoreCase(connection, "close");
+		}
+		return connection != null && Utils.containsIgnoreCase(connection, "keep-alive");
+	}
+
+	public boolean isConnected() {
+		return connected.get();
+	}
+	
+	protected void setConnected(boolean connected) {
+		this.connected.set(connected);
+	}
+
+	public void disconnect() {
+		if (connected.compareAndSet(true, false)) {
+			try {
+				close();
+			} catch (Exception ignore) {
+			} finally {
+				httpServer.removeClient(this);
+			}
+		}
+	}
+
+	protected void close() throws IOException {
+		socket.close(); // Closing this socket will also close the socket's InputStream and OutputStream
+	}
+
+	public long getId() {
+		return id;
+	}
+	
+	public Socket getSocket() {
+		return socket;
+	}
+
+	/**
+	 * Interrupts the handler thread when a request deadline expires
+	 */
+	private static class Deadline implements Runnable {
+		
+		private final Thread thread;
+		private Timeout timeout;
+		private boolean done, expired; // guarded by this
+		
+		Deadline(Thread thread) {
+			this.thread = thread;
+		}
+		
+		@Override
+		public synchronized void run() {
+			if (!done) {
+				expired = true;
+				thread.interrupt();
+			}
+		}
+		
+		/**
+		 * Stop the deadline, must be called by the handler thread
+		 * @return true if it expired, interrupt status is then cleared
+		 */
+		boolean finish() {
+			timeout.cancel();
+			synchronized (this) {
+				done = true;
+			}
+			if (expired) {
+				Thread.interrupted();
+			}
+			return expired;
+		}
+		
+	}
+	
+	/**
+	 * Completes asynchronous responses whose deadline was exceeded
+	 */
+	private static class DeadlineExceededException extends Exception {
+		
+		private static final long serialVersionUID = 1L;
+		
+		final boolean dropped;
+		
+		DeadlineExceededException(boolean dropped) {
+			super(null, null, false, false); // no stack trace
+			this.dropped = dropped;
+		}
+		
+	}
+	
+}
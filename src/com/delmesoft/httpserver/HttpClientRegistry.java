@@ -0,0 +1,116 @@
+package com.delmesoft.httpserver;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class HttpClientRegistry implements Iterable<HttpClient> {
+	
+	private final AtomicLong ids;
+	private final LongAdder count;
+	private final ConcurrentHashMap<Long, HttpClient> httpClientMap;
+
+	public HttpClientRegistry() {
+		this(Runtime.getRuntime().availableProcessors() << 2);
+	}
+
+	/**
+	 * @param concurrencyLevel estimated number of threads registering clients concurrently
+	 */
+	public HttpClientRegistry(int concurrencyLevel) {
+		ids = new AtomicLong();
+		count = new LongAdder();
+		httpClientMap = new ConcurrentHashMap<>(64, 0.75f, concurrencyLevel);
+	}
+
+	/**
+	 * Generate a new client id without locking
+	 * @return unique id
+	 */
+	public long nextId() {
+		return ids.getAndIncrement();
+	}
+
+	public void add(HttpClient httpClient) {
+		if (httpClientMap.put(httpClient.getId(), httpClient) == null) {
+			count.increment();
+		}
+	}
+
+	public boolean remove(HttpClient httpClient) {
+		if (httpClientMap.remove(httpClient.getId(), httpClient)) {
+			count.decrement();
+			return true;
+		}
+		return false;
+	}
+
+	public HttpClient get(long id) {
+		return httpClientMap.get(id);
+	}
+
+	/**
+	 * Return number of registered clients, never blocks registration
+	 * @return client count
+	 */
+	public int size() {
+		return count.intValue();
+	}
+
+	/**
+	 * Weakly consistent iterator, reflects some state at or since its creation and never blocks registration
+	 */
+	@Override
+	public Iterator<HttpClient> iterator() {
+		return httpClientMap.values().iterator();
+	}
+
+	/**
+	 * Weakly consistent traversal, never blocks registration
+	 */
+	@Override
+	public void forEach(Consumer<? super HttpClient> action) {
+		httpClientMap.values().forEach(action);
+	}
+
+	/**
+	 * Add a weakly consistent snapshot of registered clients to result
+	 * @param result destination collection
+	 */
+	public void getHttpClients(Collection<? super HttpClient> result) {
+		result.addAll(httpClientMap.values());
+	}
+
+}
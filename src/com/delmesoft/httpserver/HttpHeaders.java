@@ -0,0 +1,379 @@
+package com.delmesoft.httpserver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class HttpHeaders {
+	
+	private static final String[] NAMES = { 
+			"Host", "Date", "Accept", "Cookie", "Expect", "Origin", "Upgrade", "Referer", "Connection", "User-Agent", 
+			"Content-Type", "Authorization", "Cache-Control", "Content-Length", "Accept-Encoding", "Accept-Language", 
+			"Content-Encoding", "Transfer-Encoding", "If-Modified-Since", "Sec-WebSocket-Key", "Sec-WebSocket-Version" };
+	
+	private String[] names;
+	private String[] values; // decoded values, null until read for raw ones
+	private int[] ranges; // offset and length of raw values in data
+	private int size;
+	
+	private byte[] data; // raw value bytes as received
+	private int dataLength;
+	
+	private Map<String, String> map;
+	
+	public HttpHeaders() {
+		names = new String[16];
+		values = new String[16];
+	}
+	
+	/**
+	 * Return a shared instance for well known header names, so they are not allocated per request
+	 * and are matched by reference
+	 * @param b source bytes
+	 * @param from first byte of the name
+	 * @param to end of the name
+	 * @return header name
+	 */
+	public static String name(byte[] b, int from, int to) {
+		final int len = to - from;
+		for (String name : NAMES) {
+			if (name.length() == len) {
+				int i = 0;
+				while (i < len && b[from + i] == name.charAt(i)) ++i;
+				if (i == len) {
+					return name;
+				}
+			}
+		}
+		return new String(b, from, len, StandardCharsets.ISO_8859_1);
+	}
+	
+	/**
+	 * Find first header with the given name, names are compared ignoring case without allocating
+	 * @param name header name
+	 * @return index, -1 if not found
+	 */
+	public int indexOf(String name) {
+		for (int i = 0; i < size; ++i) { // literals and well known names are the same instance
+			if (names[i] == name) {
+				return i;
+			}
+		}
+		if (name != null) {
+			for (int i = 0; i < size; ++i) {
+				if (name.equalsIgnoreCase(names[i])) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	public String get(String name) {
+		final int index = indexOf(name);
+		return index < 0 ? null : getValue(index);
+	}
+	
+	public boolean contains(String name) {
+		return indexOf(name) > -1;
+	}
+	
+	/**
+	 * Append a header, existing ones with the same name are kept
+	 * @param name header name
+	 * @param value header value
+	 * @return this
+	 */
+	public HttpHeaders add(String name, String value) {
+		ensureCapacity();
+		if (ranges != null) {
+			ranges[(size << 1) + 1] = -1; // not raw
+		}
+		names[size] = name;
+		values[size++] = value;
+		return this;
+	}
+	
+	/**
+	 * Append a header whose value is decoded from its bytes when first read
+	 * @param name header name, see name()
+	 * @param b source bytes, copied
+	 * @param from first byte of the value
+	 * @param to end of the value
+	 * @return this
+	 */
+	public HttpHeaders add(String name, byte[] b, int from, int to) {
+		final int len = to - from;
+		if (data == null) {
+			data = new byte[Math.max(512, Integer.highestOneBit(len) << 1)];
+		} else if (dataLength + len > data.length) {
+			data = Arrays.copyOf(data, Integer.highestOneBit(dataLength + len) << 1);
+		}
+		System.arraycopy(b, from, data, dataLength, len);
+		ensureCapacity();
+		if (ranges == null) {
+			ranges = new int[names.length << 1];
+		}
+		names[size] = name;
+		values[size] = null;
+		ranges[size << 1] = dataLength;
+		ranges[(size << 1) + 1] = len;
+		++size;
+		dataLength += len;
+		return this;
+	}
+	
+	/**
+	 * Replace headers with the given name by a single one
+	 * @param name header name
+	 * @param value header value, null removes them
+	 * @return previous value
+	 */
+	public String set(String name, String value) {
+		final int index = indexOf(name);
+		if (index < 0) {
+			if (value != null) {
+				add(name, value);
+			}
+			return null;
+		}
+		final String result = getValue(index);
+		remove(name, index + 1);
+		if (value == null) {
+			removeAt(index);
+		} else {
+			values[index] = value;
+		}
+		return result;
+	}
+	
+	/**
+	 * Remove every header with the given name
+	 * @param name header name
+	 * @return value of the first one removed, null if none
+	 */
+	public String remove(String name) {
+		final int index = indexOf(name);
+		if (index < 0) {
+			return null;
+		}
+		final String result = getValue(index);
+		remove(name, index);
+		return result;
+	}
+	
+	private void remove(String name, int from) {
+		for (int i = size - 1; i >= from; --i) {
+			if (name.equalsIgnoreCase(names[i])) {
+				removeAt(i);
+			}
+		}
+	}
+	
+	private void removeAt(int index) {
+		final int n = size - index - 1;
+		System.arraycopy(names, index + 1, names, index, n);
+		System.arraycopy(values, index + 1, values, index, n);
+		if (ranges != null) {
+			System.arraycopy(ranges, (index + 1) << 1, ranges, index << 1, n << 1);
+		}
+		--size;
+		names[size] = null;
+		values[size] = null;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public String getName(int index) {
+		return names[index];
+	}
+	
+	public String getValue(int index) {
+		String value = values[index];
+		if (value == null && ranges != null && ranges[(index << 1) + 1] >= 0) {
+			values[index] = value = decode(data, ranges[index << 1], ranges[index << 1] + ranges[(index << 1) + 1]);
+		}
+		return value;
+	}
+	
+	public void clear() {
+		Arrays.fill(names, 0, size, null);
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+		dataLength = 0;
+	}
+	
+	/**
+	 * Check if no header before the given one has the same name, ignoring case
+	 */
+	private boolean isFirst(int index) {
+		final String name = names[index];
+		for (int i = 0; i < index; ++i) {
+			if (names[i] == name || name.equalsIgnoreCase(names[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private void ensureCapacity() {
+		if (size == names.length) {
+			names = Arrays.copyOf(names, size << 1);
+			values = Arrays.copyOf(values, size << 1);
+			if (ranges != null) {
+				ranges = Arrays.copyOf(ranges, size << 2);
+			}
+		}
+	}
+	
+	private static String decode(byte[] b, int from, int to) {
+		for (int i = from; i < to; ++i) {
+			if (b[i] < 0) { // not ASCII
+				return new String(b, from, to - from, StandardCharsets.UTF_8);
+			}
+		}
+		return new String(b, from, to - from, StandardCharsets.ISO_8859_1); // plain copy
+	}
+	
+	/**
+	 * Return a Map view backed by these headers, lookups ignore case. Repeated headers show up
+	 * as one entry holding the first value, put replaces all of them. Every line is read through
+	 * getName and getValue
+	 * @return header map
+	 */
+	public Map<String, String> asMap() {
+		if (map == null) {
+			map = new HeaderMap();
+		}
+		return map;
+	}
+	
+	@Override
+	public String toString() {
+		return asMap().toString();
+	}
+	
+	private class HeaderMap extends AbstractMap<String, String> {
+		
+		@Override
+		public String get(Object key) {
+			return key instanceof String ? HttpHeaders.this.get((String) key) : null;
+		}
+		
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof String && contains((String) key);
+		}
+		
+		@Override
+		public String put(String key, String value) {
+			return set(key, value);
+		}
+		
+		@Override
+		public String remove(Object key) {
+			return key instanceof String ? HttpHeaders.this.remove((String) key) : null;
+		}
+		
+		/**
+		 * Return number of names, a header sent more than once counts once
+		 */
+		@Override
+		public int size() {
+			int count = 0;
+			for (int i = 0; i < size; ++i) {
+				if (isFirst(i)) {
+					++count;
+				}
+			}
+			return count;
+		}
+		
+		@Override
+		public boolean isEmpty() {
+			return size == 0;
+		}
+		
+		@Override
+		public void clear() {
+			HttpHeaders.this.clear();
+		}
+		
+		@Override
+		public Set<Entry<String, String>> entrySet() {
+			return new AbstractSet<Entry<String, String>>() {
+				@Override
+				public Iterator<Entry<String, String>> iterator() {
+					return new Iterator<Entry<String, String>>() {
+						int index;
+						int last = -1;
+						@Override
+						public boolean hasNext() {
+							while (index < size && !isFirst(index)) ++index; // repeated names were returned with the first one
+							return index < size;
+						}
+						@Override
+						public Entry<String, String> next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							last = index++;
+							return new SimpleImmutableEntry<>(names[last], getValue(last));
+						}
+						@Override
+						public void remove() {
+							if (last < 0) {
+								throw new IllegalStateException();
+							}
+							HttpHeaders.this.remove(names[last]); // every header with the name, none of them is before it
+							index = last;
+							last = -1;
+						}
+					};
+				}
+				@Override
+				public int size() {
+					return HeaderMap.this.size();
+				}
+			};
+		}
+		
+	}
+	
+}
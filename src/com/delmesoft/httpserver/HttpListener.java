@@ -1,40 +1,109 @@
-package com.delmesoft.httpserver;
-
-/*
- * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
- * All rights reserved.
- * 
- * Redistribution and use in source and binary forms, with or without
- * modification, are permitted provided that the following conditions are met:
- * 
- * 1. Redistributions of source code must retain the above copyright notice, this
- *    list of conditions and the following disclaimer.
- * 
- * 2. Redistributions in binary form must reproduce the above copyright notice,
- *    this list of conditions and the following disclaimer in the documentation
- *    and/or other materials provided with the distribution.
- * 
- * 3. Neither the name of the copyright holder nor the names of its
- *    contributors may be used to endorse or promote products derived from
- *    this software without specific prior written permission.
- *    	
- * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
- * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
- * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
- * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
- * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
- * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
- * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
- * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
- * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
- * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
- */
-public interface HttpListener {
-	
-	HttpResponse onHttpRequest(HttpRequest httpRequest) throws Exception;
-	
-	default void onHttpResponse(HttpResponse httpResponse) throws Exception {
-		httpResponse.write();
-	}
-	
-}
+package com.delmesoft.httpserver;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public interface HttpListener {
+	
+	HttpResponse onHttpRequest(HttpRequest httpRequest) throws Exception;
+	
+	default void onHttpResponse(HttpResponse httpResponse) throws Exception {
+		httpResponse.write();
+	}
+	
+	/**
+	 * Called before the body of a request sent with Expect: 100-continue is read, so an upload can be refused
+	 * before the client sends it. 100 Continue is sent once the listener starts reading the body
+	 * @param httpRequest decoded request, its body must not be read
+	 * @return final response answered instead of calling onHttpRequest, null to accept the body
+	 * @throws Exception
+	 */
+	default HttpResponse onExpectContinue(HttpRequest httpRequest) throws Exception {
+		return null;
+	}
+	
+	/**
+	 * Check if the request is answered through onHttpRequestAsync, see AsyncHttpListener
+	 * @param httpRequest decoded request
+	 * @return true if the connection must wait for the returned future without holding a thread
+	 */
+	default boolean isAsync(HttpRequest httpRequest) {
+		return false;
+	}
+	
+	/**
+	 * Handle a request whose response completes later, called when isAsync returns true
+	 * @param httpRequest decoded request, its body must be read before returning
+	 * @return future completed with the response
+	 * @throws Exception
+	 */
+	default CompletableFuture<HttpResponse> onHttpRequestAsync(HttpRequest httpRequest) throws Exception {
+		return CompletableFuture.completedFuture(onHttpRequest(httpRequest));
+	}
+	
+	/**
+	 * Return executor that must run the request, so slow routes can be kept in their own bulkhead
+	 * @param httpRequest decoded request
+	 * @return executor, null for the server executor
+	 */
+	default Executor getExecutor(HttpRequest httpRequest) {
+		return null;
+	}
+	
+	/**
+	 * Check if the listener answers the request without blocking, so the NIO engine may handle it on
+	 * the event loop, see NonBlockingHttpListener
+	 * @param httpRequest decoded request
+	 * @return true if request handling never blocks
+	 */
+	default boolean isNonBlocking(HttpRequest httpRequest) {
+		return false;
+	}
+	
+	/**
+	 * Return how long the request may take before its handler is interrupted
+	 * @param httpRequest decoded request
+	 * @return timeout in milliseconds, 0 disables it, negative for the server timeout
+	 */
+	default int getRequestTimeout(HttpRequest httpRequest) {
+		return -1;
+	}
+	
+	/**
+	 * Called when the deadline of a request is exceeded, before it is answered with 504 or 503
+	 * @param httpRequest request
+	 * @param dropped true if request waited past its deadline and never ran
+	 */
+	default void onRequestTimeout(HttpRequest httpRequest, boolean dropped) {
+	}
+	
+}
@@ -1,253 +1,538 @@
-package com.delmesoft.httpserver;
-
-import java.io.EOFException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.InetSocketAddress;
-import java.util.HashMap;
-import java.util.Map;
-
-import com.delmesoft.httpserver.HttpResponse.Status;
-import com.delmesoft.httpserver.utils.LineReader;
-import com.delmesoft.httpserver.utils.Utils;
-
-/*
- * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
- * All rights reserved.
- * 
- * Redistribution and use in source and binary forms, with or without
- * modification, are permitted provided that the following conditions are met:
- * 
- * 1. Redistributions of source code must retain the above copyright notice, this
- *    list of conditions and the following disclaimer.
- * 
- * 2. Redistributions in binary form must reproduce the above copyright notice,
- *    this list of conditions and the following disclaimer in the documentation
- *    and/or other materials provided with the distribution.
- * 
- * 3. Neither the name of the copyright holder nor the names of its
- *    contributors may be used to endorse or promote products derived from
- *    this software without specific prior written permission.
- *    	
- * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
- * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
- * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
- * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
- * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
- * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
- * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
- * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
- * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
- * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
- */
-public class HttpRequest {
-	
-	private String method;
-	private String path;
-	private String protocol;
-
-	private Map<String, String> headers;
-	private Map<String, String> parameters;
-	private Map<String, String> cookies;
-	
-	private transient InetSocketAddress remoteAddress;
-	
-	private transient Session session;
-	
-	private final transient LineReader lineReader;
-	
-	public HttpRequest() {
-		headers    = new HashMap<>();
-		parameters = new HashMap<>();
-		cookies    = new HashMap<>();
-		lineReader = new LineReader();
-	}
-	
-	public String getMethod() {
-		return method;
-	}
-
-	public void setMethod(String method) {
-		this.method = method;
-	}
-
-	public String getPath() {
-		return path;
-	}
-
-	public void setPath(String path) {
-		this.path = path;
-	}
-
-	public String getProtocol() {
-		return protocol;
-	}
-
-	public void setProtocol(String protocol) {
-		this.protocol = protocol;
-	}
-
-	public Map<String, String> getParameters() {
-		return parameters;
-	}
-
-	public void setParameters(Map<String, String> parameters) {
-		this.parameters = parameters;
-	}
-
-	protected Map<String, String> getHeaders() {
-		return headers;
-	}
-
-	protected void setHeaders(Map<String, String> headers) {
-		this.headers = headers;
-	}
-
-	public HttpRequest addHeader(String key, String value) {
-		headers.put(key, value);
-		return this;
-	}
-	
-	public String getHeader(String key) {
-		String result = headers.get(key);
-		if(result == null && key != null) {
-			result = headers.get(key.toLowerCase());
-		}
-		return result;
-	}
-	
-	public int getHeaderAsInt(String key) {
-		String result = getHeader(key);
-		if(result == null) return -1;
-		return Integer.parseInt(result);
-	}
-
-	public Map<String, String> getCookies() {
-		return cookies;
-	}
-
-	public void setCookies(Map<String, String> cookies) {
-		this.cookies = cookies;
-	}
-	
-	public Session getSession() {
-		return session;
-	}
-
-	public void setSession(Session session) {
-		this.session = session;
-	}
-
-	public InetSocketAddress getRemoteAddress() {
-		return remoteAddress;
-	}
-	
-	public void setRemoteAddress(InetSocketAddress remoteAddress) {
-		this.remoteAddress = remoteAddress;
-	}
-	
-	public boolean read() throws Exception {
-		return read(session.getInputStream());
-	}
-
-	/**
-	 * Decode HTTP request
-	 * @param is Client InputStream
-	 * @return true if connection must remain open
-	 * @throws Exception Connection error
-	 */
-	protected boolean read(InputStream is) throws Exception {
-		String line = lineReader.readLine(is);
-		if(line == null) { 
-			return false;
-		}
-		String[] requestParam = new String[2];
-		int j, i, index = 0;
-		for (j = 0, i = 0; i < line.length(); ++i) {
-			if (line.charAt(i) == 32) { // 32 = ASCII code (white space)
-				requestParam[index++] = line.substring(j, i);
-				j = i + 1;
-			}
-		}
-		protocol = line.substring(j, i);
-		method   = requestParam[0];
-		path     = requestParam[1]; 
-		// Read headers
-		headers.clear();
-		while((line = lineReader.readLine(is)) != null 
-		   && (index = line.indexOf(':')) > -1) {
-			String key   = line.substring(0, index);
-			String value = line.substring(index + 2);
-			headers.put(key, value);
-		}
-		// Cookies
-		cookies.clear();
-		String value;
-		if((value = getHeader("Cookie")) != null) {
-			Utils.stringToMap(value, ";", cookies);
-		}
-		// Handle method
-		parameters.clear();
-		switch (method) {
-		case "GET":    // retrieve data
-		case "HEAD":   // retrieve only head 
-		case "DELETE": // delete the resource identified by the Request-URI
-			index = path.indexOf('?');
-			if (index > -1) { // check if has parameters
-				String query = path.substring(index + 1);
-				Utils.stringToMap(query, "&", parameters);
-				path = path.substring(0, index); // remove parameters from path
-			}
-			break;
-		case "POST": // modify/update resource
-		case "PUT":  // create resource
-			final String contentType = getHeader("Content-Type");
-			if ("application/x-www-form-urlencoded".equalsIgnoreCase(contentType)) {
-				String query = getContentAsString(is);
-				Utils.stringToMap(query, "&", parameters);
-			}
-			break;
-		default:
-			throw new HttpException("Unsupported method").setStatus(Status.NOT_ALLOWED);
-		}
-		return true;
-	}
-
-	public String getContentAsString(InputStream is) throws IOException {
-		String value = getHeader("Content-Length");
-		final int contentLength = value != null ? Integer.parseInt(value) : 0; // body length
-		byte[] body = new byte[contentLength];
-		int n = 0;
-		while (n < contentLength) { // read all bytes
-			int count = is.read(body, n, contentLength - n);
-			if (count < 0)
-				throw new EOFException(); // connection closed
-			n += count;
-		}
-		return new String(body, 0, contentLength, "UTF-8");
-	}
-	
-	public String getContentAsString() throws IOException {
-		return getContentAsString(session.getInputStream());
-	}
-
-	@Override
-	public String toString() {
-		StringBuilder builder = new StringBuilder();
-		builder.append("HttpRequest [method=");
-		builder.append(method);
-		builder.append(", path=");
-		builder.append(path);
-		builder.append(", protocol=");
-		builder.append(protocol);
-		builder.append(", headers=");
-		builder.append(headers);
-		builder.append(", parameters=");
-		builder.append(parameters);
-		builder.append(", cookies=");
-		builder.append( cookies);
-		builder.append("]");
-		return builder.toString();
-	}
-
-}
+package com.delmesoft.httpserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.delmesoft.httpserver.HttpResponse.Status;
+import com.delmesoft.httpserver.utils.BodyInputStream;
+import com.delmesoft.httpserver.utils.BodyInputStream.ContentTooLargeException;
+import com.delmesoft.httpserver.utils.ChunkedInputStream;
+import com.delmesoft.httpserver.utils.ContentInputStream;
+import com.delmesoft.httpserver.utils.RequestParser;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class HttpRequest {
+	
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	private static final int BODY_BUFFER_SIZE = 1024 << 3;
+	
+	private static final byte[] CONTINUE = (Constants.PROTOCOL + " 100 Continue\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+	
+	private String method;
+	private String path;
+	private String protocol;
+
+	private HttpHeaders headers;
+	private Parameters parameters;
+	private Parameters cookies;
+	
+	private transient InetSocketAddress remoteAddress;
+	
+	private transient Session session;
+	
+	private transient InputStream input; // stream the request was read from
+	private transient long contentLength; // -1 if chunked
+	private transient BodyInputStream content;
+	
+	private transient RequestLimits limits;
+	
+	private transient boolean expectContinue; // client waits for 100 Continue before sending the body
+	private transient boolean continueSent;
+	private transient boolean formPending; // form body of a request expecting 100 Continue, read on first parameter access
+	
+	private transient boolean cookiesRead;
+	
+	private transient Object route; // resolved by a routing listener for the current path
+	
+	private transient long receivedTime;
+	
+	private final transient RequestParser parser;
+	
+	public HttpRequest() {
+		headers    = new HttpHeaders();
+		parameters = new Parameters();
+		cookies    = new Parameters();
+		parser     = new RequestParser(headers);
+	}
+	
+	public String getMethod() {
+		return method;
+	}
+
+	public void setMethod(String method) {
+		this.method = method;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+		this.route = null;
+	}
+	
+	/**
+	 * Return the route a routing listener resolved for the current path, so it is looked up once per request
+	 * @return route, null if not resolved or the path changed since
+	 */
+	public Object getRoute() {
+		return route;
+	}
+	
+	public void setRoute(Object route) {
+		this.route = route;
+	}
+
+	public String getProtocol() {
+		return protocol;
+	}
+
+	public void setProtocol(String protocol) {
+		this.protocol = protocol;
+	}
+
+	/**
+	 * Return query or form parameters. The form body of a request expecting 100 Continue is read on first
+	 * call, so onExpectContinue must not call it before deciding
+	 * @return parameters
+	 * @throws UncheckedIOException Error reading form body
+	 */
+	public Map<String, String> getParameters() {
+		readPendingForm();
+		return parameters;
+	}
+
+	public void setParameters(Map<String, String> parameters) {
+		formPending = false;
+		this.parameters.clear();
+		this.parameters.putAll(parameters);
+	}
+	
+	/**
+	 * Return every value of a parameter sent more than once, getParameters only returns the first
+	 * @param name parameter name
+	 * @return values in order, empty if none
+	 */
+	public List<String> getParameterValues(String name) {
+		readPendingForm();
+		return parameters.getAll(name);
+	}
+	
+	private void readPendingForm() {
+		if (formPending) {
+			formPending = false;
+			try {
+				parameters.reset(readForm(input != null ? input : session.getInputStream()), Parameters.FORM);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	protected Map<String, String> getHeaders() {
+		return headers.asMap();
+	}
+
+	protected void setHeaders(Map<String, String> headers) {
+		this.headers.clear();
+		headers.forEach(this.headers::add);
+	}
+	
+	/**
+	 * Return header store, names are matched ignoring case
+	 * @return request headers
+	 */
+	public HttpHeaders getHttpHeaders() {
+		return headers;
+	}
+
+	public HttpRequest addHeader(String key, String value) {
+		headers.set(key, value);
+		return this;
+	}
+	
+	public String getHeader(String key) {
+		return headers.get(key);
+	}
+	
+	public int getHeaderAsInt(String key) {
+		String result = getHeader(key);
+		if(result == null) return -1;
+		return Integer.parseInt(result);
+	}
+
+	public Map<String, String> getCookies() {
+		if (!cookiesRead) { // Cookie header is only looked up when asked for
+			cookies.reset(getHeader("Cookie"), Parameters.COOKIE);
+			cookiesRead = true;
+		}
+		return cookies;
+	}
+
+	public void setCookies(Map<String, String> cookies) {
+		this.cookies.clear();
+		this.cookies.putAll(cookies);
+		cookiesRead = true;
+	}
+	
+	public RequestLimits getLimits() {
+		return limits;
+	}
+	
+	/**
+	 * Set limits checked while reading the request head and body
+	 * @param limits request limits, null for none
+	 */
+	public void setLimits(RequestLimits limits) {
+		this.limits = limits;
+		parser.setLimits(limits);
+	}
+	
+	public Session getSession() {
+		return session;
+	}
+
+	public void setSession(Session session) {
+		this.session = session;
+	}
+
+	public InetSocketAddress getRemoteAddress() {
+		return remoteAddress;
+	}
+	
+	public void setRemoteAddress(InetSocketAddress remoteAddress) {
+		this.remoteAddress = remoteAddress;
+	}
+	
+	/**
+	 * Return when the request head was read, request deadlines start at this time
+	 * @return System.nanoTime() value
+	 */
+	public long getReceivedTime() {
+		return receivedTime;
+	}
+	
+	public void setReceivedTime(long receivedTime) {
+		this.receivedTime = receivedTime;
+	}
+	
+	public boolean read() throws Exception {
+		return read(session.getInputStream());
+	}
+
+	/**
+	 * Decode HTTP request
+	 * @param is Client InputStream
+	 * @return true if connection must remain open
+	 * @throws Exception Connection error
+	 */
+	protected boolean read(InputStream is) throws Exception {
+		if(!parser.read(is)) { 
+			return false;
+		}
+		receivedTime = System.nanoTime();
+		method   = parser.getMethod();
+		path     = parser.getTarget();
+		protocol = parser.getProtocol();
+		route    = null;
+		// Headers are filled by the parser
+		input = is;
+		content = null;
+		contentLength = readContentLength();
+		continueSent = false;
+		expectContinue = contentLength != 0 && Constants.PROTOCOL.equals(protocol) && "100-continue".equalsIgnoreCase(getHeader("Expect"));
+		if (limits != null && limits.getMaxContentLength() > 0 && contentLength > limits.getMaxContentLength()) {
+			limits.recordContentTooLarge();
+			throw new HttpException("Request body too large").setStatus(Status.PAYLOAD_TOO_LARGE);
+		}
+		// Cookies and parameters are parsed on first access
+		cookies.clear();
+		cookiesRead = false;
+		// Handle method
+		int index;
+		parameters.clear();
+		formPending = false;
+		switch (method) {
+		case "GET":    // retrieve data
+		case "HEAD":   // retrieve only head 
+		case "DELETE": // delete the resource identified by the Request-URI
+			index = path.indexOf('?');
+			if (index > -1) { // check if has parameters
+				parameters.reset(path.substring(index + 1), Parameters.FORM);
+				path = path.substring(0, index); // remove parameters from path
+			}
+			break;
+		case "POST": // modify/update resource
+		case "PUT":  // create resource
+			final String contentType = getHeader("Content-Type");
+			if ("application/x-www-form-urlencoded".equalsIgnoreCase(contentType)) {
+				if (expectContinue) { // not before onExpectContinue accepted the body
+					formPending = true;
+				} else {
+					try {
+						parameters.reset(readForm(is), Parameters.FORM); // body is read now so the connection stays usable
+					} catch (ContentTooLargeException e) {
+						throw new HttpException(e.getMessage()).setStatus(Status.PAYLOAD_TOO_LARGE);
+					}
+				}
+			}
+			break;
+		default:
+			throw new HttpException("Unsupported method").setStatus(Status.NOT_ALLOWED);
+		}
+		return true;
+	}
+
+	/**
+	 * Find body length, a chunked Transfer-Encoding takes precedence over Content-Length
+	 * @return body length, -1 if chunked
+	 * @throws HttpException Invalid Content-Length or unsupported transfer coding
+	 */
+	private long readContentLength() throws HttpException {
+		final String encoding = getHeader("Transfer-Encoding");
+		if (encoding != null) {
+			final int index = encoding.lastIndexOf(',');
+			if (!encoding.substring(index + 1).trim().equalsIgnoreCase("chunked")) { // chunked must be the last coding
+				throw new HttpException("Unsupported transfer coding").setStatus(Status.NOT_IMPLEMENTED);
+			}
+			return -1;
+		}
+		final String value = getHeader("Content-Length");
+		if (value == null) {
+			return 0;
+		}
+		try {
+			final long length = Long.parseLong(value.trim());
+			if (length >= 0) {
+				return length;
+			}
+		} catch (NumberFormatException e) {
+		}
+		throw new HttpException("Invalid Content-Length").setStatus(Status.BAD_REQUEST);
+	}
+	
+	/**
+	 * Return request body as a stream ending with the body, decoding chunked transfer coding. Bytes not
+	 * read by the listener are discarded before next request on the connection, or it is closed
+	 * @return body stream, empty if request has no body
+	 * @throws IOException Connection error
+	 */
+	public InputStream getContent() throws IOException {
+		return getContent(input != null ? input : session.getInputStream());
+	}
+	
+	private BodyInputStream getContent(InputStream is) throws IOException {
+		if (expectContinue && !continueSent) {
+			sendContinue();
+		}
+		if (content == null) {
+			content = contentLength < 0 ? new ChunkedInputStream(is, limits) : new ContentInputStream(is, contentLength);
+		}
+		return content;
+	}
+	
+	private void sendContinue() throws IOException {
+		continueSent = true;
+		if (session != null) {
+			final OutputStream os = session.getOutputStream();
+			os.write(CONTINUE);
+			os.flush();
+		}
+	}
+	
+	/**
+	 * Check if the client announced Expect: 100-continue, so it waits before sending the body
+	 * @return true if client expects 100 Continue
+	 */
+	public boolean isExpectContinue() {
+		return expectContinue;
+	}
+	
+	/**
+	 * Check if the body was asked for, so 100 Continue was sent to a client expecting it
+	 * @return true if 100 Continue was sent
+	 */
+	public boolean isContinueSent() {
+		return continueSent;
+	}
+	
+	/**
+	 * Return request body as a channel, see getContent. Reading into a direct buffer on the NIO engine
+	 * copies bytes straight from the connection buffer, see FileSink
+	 * @return body channel
+	 * @throws IOException Connection error
+	 */
+	public ReadableByteChannel getContentChannel() throws IOException {
+		return getContent(input != null ? input : session.getInputStream());
+	}
+
+	/**
+	 * Read whole body, it is held in memory. Prefer getContent to stream large bodies
+	 * @param is connection stream
+	 * @return body decoded as UTF-8
+	 * @throws IOException Connection error
+	 */
+	public String getContentAsString(InputStream is) throws IOException {
+		return readContent(is, MAX_ARRAY_SIZE, false);
+	}
+	
+	/**
+	 * Read a urlencoded form body, up to the form size limit
+	 * @throws ContentTooLargeException Body larger than the limit
+	 */
+	private String readForm(InputStream is) throws IOException {
+		final int maxFormSize = limits != null ? limits.getMaxFormSize() : RequestLimits.DEFAULT_MAX_FORM_SIZE;
+		return readContent(is, maxFormSize > 0 ? maxFormSize : MAX_ARRAY_SIZE, true);
+	}
+	
+	/**
+	 * Read whole body, the buffer grows as bytes arrive so a large Content-Length alone allocates nothing
+	 * @param limit largest body read
+	 * @param form true if the limit is the form size limit
+	 * @throws ContentTooLargeException Body larger than the limit
+	 */
+	private String readContent(InputStream is, int limit, boolean form) throws IOException {
+		final InputStream content = getContent(is);
+		if (contentLength > limit) {
+			throw tooLarge(form);
+		}
+		final int length = contentLength < 0 ? limit : (int) contentLength;
+		byte[] body = new byte[Math.min(length, BODY_BUFFER_SIZE)];
+		int n = 0, count;
+		while (true) {
+			if (n == body.length) {
+				if (n == length) {
+					if (contentLength >= 0 || content.read() < 0) { // whole body
+						break;
+					}
+					throw tooLarge(form);
+				}
+				body = Arrays.copyOf(body, (int) Math.min((long) n << 1, length));
+			}
+			if ((count = content.read(body, n, body.length - n)) < 0) {
+				break;
+			}
+			n += count;
+		}
+		return new String(body, 0, n, StandardCharsets.UTF_8);
+	}
+	
+	private ContentTooLargeException tooLarge(boolean form) {
+		if (form && limits != null) {
+			limits.recordContentTooLarge();
+		}
+		return new ContentTooLargeException(form ? "Form body too large" : "Request body too large");
+	}
+	
+	public String getContentAsString() throws IOException {
+		return getContentAsString(input != null ? input : session.getInputStream());
+	}
+	
+	/**
+	 * Check if request announces a body
+	 * @return true if request has Content-Length greater than zero or chunked Transfer-Encoding
+	 */
+	public boolean hasContent() {
+		return contentLength != 0;
+	}
+	
+	/**
+	 * Return body length announced by Content-Length
+	 * @return body length, -1 if chunked
+	 */
+	public long getContentLength() {
+		return contentLength;
+	}
+	
+	/**
+	 * Check if body was consumed to its end through getContent, so next request can be read
+	 * @return true if request has no body or it was read
+	 */
+	public boolean isContentRead() {
+		return contentLength == 0 || (content != null && content.isFinished());
+	}
+	
+	/**
+	 * Check if the client closed or reset the connection while the body was read
+	 * @return true if the request can not be answered
+	 */
+	public boolean isContentFailed() {
+		return content != null && content.isFailed();
+	}
+	
+	/**
+	 * Read and drop what the listener left of the body
+	 * @param limit maximum number of bytes to drop
+	 * @return true if the body was read to its end, false if more than limit bytes were left or the connection failed
+	 */
+	public boolean discardContent(long limit) {
+		if (isContentRead()) {
+			return true;
+		}
+		if (expectContinue && !continueSent) { // client may never send the body
+			return false;
+		}
+		try {
+			return getContent(input != null ? input : session.getInputStream()).discard(limit);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("HttpRequest [method=");
+		builder.append(method);
+		builder.append(", path=");
+		builder.append(path);
+		builder.append(", protocol=");
+		builder.append(protocol);
+		builder.append(", headers=");
+		builder.append(headers);
+		builder.append(", parameters=");
+		builder.append(parameters);
+		builder.append(", cookies=");
+		builder.append(getCookies());
+		builder.append("]");
+		return builder.toString();
+	}
+
+}
@@ -1,244 +1,807 @@
-package com.delmesoft.httpserver;
-
-import java.net.InetAddress;
-import java.net.InetSocketAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.logging.Level;
-
-import com.delmesoft.httpserver.utils.ServerSocketProvider;
-
-/*
- * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
- * All rights reserved.
- * 
- * Redistribution and use in source and binary forms, with or without
- * modification, are permitted provided that the following conditions are met:
- * 
- * 1. Redistributions of source code must retain the above copyright notice, this
- *    list of conditions and the following disclaimer.
- * 
- * 2. Redistributions in binary form must reproduce the above copyright notice,
- *    this list of conditions and the following disclaimer in the documentation
- *    and/or other materials provided with the distribution.
- * 
- * 3. Neither the name of the copyright holder nor the names of its
- *    contributors may be used to endorse or promote products derived from
- *    this software without specific prior written permission.
- *    	
- * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
- * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
- * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
- * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
- * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
- * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
- * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
- * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
- * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
- * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
- */
-public class HttpServerImpl implements HttpServer {
-	
-	public static final int DEFAULT_SOCKET_TIMEOUT = 5_000;
-
-	private final Object lock = new Object();
-	
-	private String host;
-	private int port;
-	
-	private long ids;
-	
-	private HttpListener httpListener;
-	private Map<Long, HttpClient> httpClientMap;
-	private int socketTimeout;
-	
-	private ServerSocketProvider serverSocketProvider;
-	private ServerSocket serverSocket;
-	private Thread connectionThread;
-	
-	private Executor executor;
-	
-	public HttpServerImpl() {
-		this(null, 8080, DEFAULT_SOCKET_TIMEOUT);
-	}
-	
-	public HttpServerImpl(int port) {
-		this(null, port, DEFAULT_SOCKET_TIMEOUT);
-	}
-	
-	public HttpServerImpl(int port, int socketTimeout) {
-		this(null, port, socketTimeout);
-	}
-	
-	public HttpServerImpl(String host, int port) {
-		this(host, port, DEFAULT_SOCKET_TIMEOUT);
-	}
-
-	public HttpServerImpl(String host, int port, int socketTimeout) {
-		this.host = host;
-		this.port = port;
-		this.socketTimeout = socketTimeout;
-		this.httpClientMap = new HashMap<>();
-		serverSocketProvider = ServerSocketProvider.DEFAULT;
-		executor = Executors.newCachedThreadPool();
-	}
-	
-	@Override
-	public void connect() throws HttpException {
-		connect(true);
-	}
-
-	@Override
-	public void connect(boolean daemon) throws HttpException {
-		synchronized (lock) {
-			if (!isConnected()) {
-				try {
-										
-					serverSocket = serverSocketProvider.createServerSocket();
-					
-					InetSocketAddress inetSocketAddress;
-					if (host != null) {
-						inetSocketAddress = new InetSocketAddress(InetAddress.getByName(host), port);
-					} else {
-						inetSocketAddress = new InetSocketAddress(port);
-					}
-					serverSocket.bind(inetSocketAddress);
-					connectionThread(daemon);
-				} catch (Exception e) {
-					disconnect();
-					throw new HttpException("Error connecting Server", e);
-				}
-			}
-		}
-	}
-	
-	private void connectionThread(boolean daemon) {
-		connectionThread = new Thread(HttpServerImpl.class.getName()) {
-			public void run() {
-				try {
-					while (!isInterrupted()) {
-						final Socket socket = serverSocket.accept();
-						if(socketTimeout > 0) {
-							socket.setSoTimeout(socketTimeout);
-						}
-						HttpClient httpClient;
-						synchronized (lock) {
-							httpClient = new HttpClient(ids++, socket, HttpServerImpl.this);
-							httpClientMap.put(httpClient.getId(), httpClient);
-						}
-						executor.execute(httpClient);
-					}
-				} catch (Exception e) {
-					if(isConnected())
-						HttpServer.log.log(Level.SEVERE, "Internal Server Error", e);
-				} finally {
-					disconnect();
-				}
-			}
-		};
-		connectionThread.setDaemon(daemon);
-		connectionThread.start();
-	}
-	
-	@Override
-	public boolean isConnected() {
-		synchronized (lock) {
-			return serverSocket != null;
-		}
-	}
-
-	@Override
-	public void disconnect() {
-		synchronized (lock) {
-			if(isConnected()) {
-				try {
-					try { serverSocket.close(); } catch (Exception e) {}
-					try { connectionThread.interrupt();   } catch (Exception e) {}
-				} finally {
-					serverSocket = null;
-				}
-			}
-		}
-	}
-
-	@Override
-	public String getHost() {
-		return host;
-	}
-	
-	public void setHost(String host) {
-		this.host = host;
-	}
-
-	@Override
-	public int getPort() {
-		return port;
-	}
-	
-	public void setPort(int port) {
-		this.port = port;
-	}
-
-	@Override
-	public void setHttpListener(HttpListener httpListener) {
-		synchronized (lock) {
-			this.httpListener = httpListener;
-		}
-	}
-
-	@Override
-	public HttpListener getHttpListener() {
-		synchronized (lock) {
-			return httpListener;
-		}
-	}
-
-	public void removeClient(HttpClient httpClient) {
-		synchronized (lock) {
-			httpClientMap.remove(httpClient.getId());
-		}
-	}
-
-	public void getHttpClients(List<HttpClient> result) {
-		synchronized (lock) {
-			result.addAll(httpClientMap.values());
-		}
-	}
-
-	public int getHttpClientCount() {
-		synchronized (lock) {
-			return httpClientMap.size();
-		}
-	}
-
-	public int getSocketTimeout() {
-		return socketTimeout;
-	}
-
-	public void setSocketTimeout(int socketTimeout) {
-		this.socketTimeout = socketTimeout;
-	}
-
-	public ServerSocketProvider getServerSocketProvider() {
-		return serverSocketProvider;
-	}
-
-	public void setServerSocketProvider(ServerSocketProvider serverSocketProvider) {
-		this.serverSocketProvider = serverSocketProvider;
-	}
-
-	public Executor getExecutor() {
-		return executor;
-	}
-
-	public void setExecutor(Executor executor) {
-		this.executor = executor;
-	}
-
-	
-}
+package com.delmesoft.httpserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+
+import com.delmesoft.httpserver.HttpResponse.Status;
+import com.delmesoft.httpserver.nio.NioEngine;
+import com.delmesoft.httpserver.nio.NioEventLoop;
+import com.delmesoft.httpserver.utils.AdaptiveLimiter;
+import com.delmesoft.httpserver.utils.ServerChannelProvider;
+import com.delmesoft.httpserver.utils.ServerSocketProvider;
+import com.delmesoft.httpserver.utils.TimerWheel;
+import com.delmesoft.httpserver.utils.VirtualThreads;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class HttpServerImpl implements HttpServer {
+	
+	public enum Engine {
+		/** One blocking thread per connection */
+		BLOCKING,
+		/** Connections multiplexed on a selector, threads only while a request is handled */
+		NIO,
+		/** One blocking virtual thread per connection, requires a JVM with virtual threads */
+		VIRTUAL
+	}
+	
+	public enum AcceptMode {
+		/** One acceptor thread distributing connections round robin between event loops */
+		SHARED,
+		/** One listening channel per event loop bound to the same port (SO_REUSEPORT) */
+		REUSE_PORT
+	}
+	
+	public enum RejectionPolicy {
+		/** Answer 503 Service Unavailable with Retry-After and close connection */
+		SERVICE_UNAVAILABLE,
+		/** Close connection without answer */
+		CLOSE
+	}
+	
+	public static final int DEFAULT_SOCKET_TIMEOUT = 5_000;
+	public static final int DEFAULT_RETRY_AFTER = 1;
+	public static final int DEFAULT_IDLE_TIMEOUT = DEFAULT_SOCKET_TIMEOUT;
+	public static final int DEFAULT_MAX_REQUESTS_PER_CONNECTION = 1_000;
+	public static final int DEFAULT_MAX_PIPELINE_DEPTH = 16;
+	public static final int DEFAULT_INLINE_BLOCK_THRESHOLD = 20;
+	public static final int DEFAULT_WRITE_TIMEOUT = 30_000;
+	public static final int DEFAULT_MAX_OUTBOUND_BUFFER = 1024 << 10;
+	public static final long DEFAULT_MAX_OUTBOUND_BYTES = 1024L << 16;
+	public static final int DEFAULT_MAX_DISCARD_SIZE = 1024 << 6;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	private String host;
+	private int port;
+	
+	private volatile HttpListener httpListener;
+	private final HttpClientRegistry httpClientRegistry;
+	private int socketTimeout;
+	private int idleTimeout;
+	private int maxRequestsPerConnection;
+	private volatile TimerWheel timerWheel;
+	
+	private int maxPipelineDepth;
+	private boolean pipelineParallel;
+	private final PipelineStats pipelineStats;
+	private final RequestLimits requestLimits;
+	
+	private ServerSocketProvider serverSocketProvider;
+	private ServerChannelProvider serverChannelProvider;
+	private ServerSocket serverSocket;
+	private Thread connectionThread;
+	
+	private Executor executor;
+	
+	private Engine engine;
+	private AcceptMode acceptMode;
+	private int ioThreads;
+	private int backlog;
+	private NioEngine nioEngine;
+	
+	private RejectionPolicy rejectionPolicy;
+	private int retryAfter;
+	private volatile byte[] rejectionResponse;
+	private volatile AdaptiveLimiter concurrencyLimiter;
+	
+	private volatile int requestTimeout;
+	private final LongAdder timedOutCount;
+	private final LongAdder droppedCount;
+	
+	private boolean inlineHandlers;
+	private int inlineBlockThreshold;
+	private final LongAdder blockedInlineCount;
+	
+	private volatile int writeTimeout;
+	private volatile int maxOutboundBuffer;
+	private volatile long maxOutboundBytes;
+	private final AtomicLong outboundBytes;
+	private final LongAdder writeTimedOutCount;
+	
+	private volatile int maxDiscardSize;
+	
+	public HttpServerImpl() {
+		this(null, 8080, DEFAULT_SOCKET_TIMEOUT);
+	}
+	
+	public HttpServerImpl(int port) {
+		this(null, port, DEFAULT_SOCKET_TIMEOUT);
+	}
+	
+	public HttpServerImpl(int port, int socketTimeout) {
+		this(null, port, socketTimeout);
+	}
+	
+	public HttpServerImpl(String host, int port) {
+		this(host, port, DEFAULT_SOCKET_TIMEOUT);
+	}
+
+	public HttpServerImpl(String host, int port, int socketTimeout) {
+		this.host = host;
+		this.port = port;
+		this.socketTimeout = socketTimeout;
+		this.idleTimeout = DEFAULT_IDLE_TIMEOUT;
+		this.maxRequestsPerConnection = DEFAULT_MAX_REQUESTS_PER_CONNECTION;
+		this.maxPipelineDepth = DEFAULT_MAX_PIPELINE_DEPTH;
+		this.timedOutCount = new LongAdder();
+		this.droppedCount = new LongAdder();
+		this.inlineBlockThreshold = DEFAULT_INLINE_BLOCK_THRESHOLD;
+		this.blockedInlineCount = new LongAdder();
+		this.writeTimeout = DEFAULT_WRITE_TIMEOUT;
+		this.maxOutboundBuffer = DEFAULT_MAX_OUTBOUND_BUFFER;
+		this.maxOutboundBytes = DEFAULT_MAX_OUTBOUND_BYTES;
+		this.maxDiscardSize = DEFAULT_MAX_DISCARD_SIZE;
+		this.outboundBytes = new AtomicLong();
+		this.writeTimedOutCount = new LongAdder();
+		this.pipelineStats = new PipelineStats();
+		this.requestLimits = new RequestLimits();
+		this.httpClientRegistry = new HttpClientRegistry();
+		serverSocketProvider = ServerSocketProvider.DEFAULT;
+		serverChannelProvider = ServerChannelProvider.DEFAULT;
+		executor = Executors.newCachedThreadPool();
+		engine = Engine.BLOCKING;
+		acceptMode = AcceptMode.SHARED;
+		ioThreads = Runtime.getRuntime().availableProcessors();
+		rejectionPolicy = RejectionPolicy.SERVICE_UNAVAILABLE;
+		retryAfter = DEFAULT_RETRY_AFTER;
+		rejectionResponse = buildRejectionResponse();
+	}
+	
+	@Override
+	public void connect() throws HttpException {
+		connect(true);
+	}
+
+	@Override
+	public void connect(boolean daemon) throws HttpException {
+		lock.lock();
+		try {
+			if (!isConnected()) {
+				try {
+					
+					InetSocketAddress inetSocketAddress;
+					if (host != null) {
+						inetSocketAddress = new InetSocketAddress(InetAddress.getByName(host), port);
+					} else {
+						inetSocketAddress = new InetSocketAddress(port);
+					}
+					
+					if (engine == Engine.NIO) {
+						if (serverSocketProvider != ServerSocketProvider.DEFAULT) {
+							throw new HttpException("NIO engine does not support a custom ServerSocketProvider");
+						}
+						nioEngine = new NioEngine(this);
+						nioEngine.start(inetSocketAddress, daemon);
+						serverSocket = nioEngine.getServerSocket();
+					} else {
+						if (serverChannelProvider != ServerChannelProvider.DEFAULT) {
+							throw new HttpException("A custom ServerChannelProvider requires the NIO engine");
+						}
+						if (engine == Engine.VIRTUAL && !VirtualThreads.isSupported()) {
+							throw new HttpException("Virtual threads are not supported by this JVM");
+						}
+						serverSocket = serverSocketProvider.createServerSocket();
+						serverSocket.bind(inetSocketAddress, backlog);
+						timerWheel = new TimerWheel(); // a single thread expires idle connections
+						timerWheel.start(TimerWheel.class.getName(), true);
+						connectionThread(daemon);
+					}
+				} catch (Exception e) {
+					disconnect();
+					throw new HttpException("Error connecting Server", e);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	private void connectionThread(boolean daemon) {
+		final ServerSocket serverSocket = this.serverSocket;
+		final boolean virtual = engine == Engine.VIRTUAL;
+		final Runnable acceptLoop = () -> {
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					final Socket socket = serverSocket.accept();
+					if(socketTimeout > 0) {
+						socket.setSoTimeout(socketTimeout);
+					}
+					HttpClient httpClient = new HttpClient(nextClientId(), socket, HttpServerImpl.this);
+					addClient(httpClient);
+					if (virtual) { // one virtual thread per connection
+						VirtualThreads.newThread(HttpClient.class.getName() + "-" + httpClient.getId(), httpClient).start();
+					} else {
+						try {
+							executor.execute(httpClient);
+						} catch (RejectedExecutionException e) { // overloaded, answer from accept thread
+							reject(httpClient);
+						}
+					}
+				}
+			} catch (Exception e) {
+				if(isConnected())
+					HttpServer.log.log(Level.SEVERE, "Internal Server Error", e);
+			} finally {
+				disconnect();
+			}
+		};
+		if (virtual) { // virtual threads are always daemon
+			connectionThread = VirtualThreads.newThread(HttpServerImpl.class.getName(), acceptLoop);
+		} else {
+			connectionThread = new Thread(acceptLoop, HttpServerImpl.class.getName());
+			connectionThread.setDaemon(daemon);
+		}
+		connectionThread.start();
+	}
+	
+	private void reject(HttpClient httpClient) {
+		final Socket socket = httpClient.getSocket();
+		try {
+			final byte[] response = rejectionResponse;
+			if (response != null) {
+				socket.getOutputStream().write(response);
+				final InputStream is = socket.getInputStream();
+				is.skip(is.available()); // avoid connection reset before client reads the answer
+			}
+		} catch (Exception ignore) {
+		} finally {
+			try { socket.close(); } catch (Exception ignore) {}
+			removeClient(httpClient);
+		}
+	}
+	
+	private byte[] buildRejectionResponse() {
+		if (rejectionPolicy == RejectionPolicy.SERVICE_UNAVAILABLE) {
+			return HttpResponse.prebuild(Status.SERVICE_UNAVAILABLE, "Retry-After", Integer.toString(retryAfter), "Connection", "close");
+		}
+		return null;
+	}
+	
+	@Override
+	public boolean isConnected() {
+		lock.lock();
+		try {
+			return serverSocket != null || nioEngine != null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void disconnect() {
+		lock.lock();
+		try {
+			if(isConnected()) {
+				try {
+					if (serverSocket != null) {
+						try { serverSocket.close(); } catch (Exception e) {}
+					}
+					if (connectionThread != null) {
+						try { connectionThread.interrupt();   } catch (Exception e) {}
+					}
+					if (nioEngine != null) {
+						try { nioEngine.close(); } catch (Exception e) {}
+					}
+					if (timerWheel != null) {
+						timerWheel.stop();
+					}
+				} finally {
+					serverSocket = null;
+					connectionThread = null;
+					nioEngine = null;
+					timerWheel = null;
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public String getHost() {
+		return host;
+	}
+	
+	public void setHost(String host) {
+		this.host = host;
+	}
+
+	@Override
+	public int getPort() {
+		return port;
+	}
+	
+	public void setPort(int port) {
+		this.port = port;
+	}
+
+	@Override
+	public void setHttpListener(HttpListener httpListener) {
+		this.httpListener = httpListener;
+	}
+
+	@Override
+	public HttpListener getHttpListener() {
+		return httpListener;
+	}
+
+	public long nextClientId() {
+		return httpClientRegistry.nextId();
+	}
+
+	public void addClient(HttpClient httpClient) {
+		httpClientRegistry.add(httpClient);
+	}
+
+	public void removeClient(HttpClient httpClient) {
+		httpClientRegistry.remove(httpClient);
+	}
+
+	public void getHttpClients(List<HttpClient> result) {
+		httpClientRegistry.getHttpClients(result);
+	}
+
+	public int getHttpClientCount() {
+		return httpClientRegistry.size();
+	}
+
+	/**
+	 * Return registry of open connections, iteration is weakly consistent and never blocks accepts
+	 * @return client registry
+	 */
+	public HttpClientRegistry getHttpClientRegistry() {
+		return httpClientRegistry;
+	}
+
+	public int getSocketTimeout() {
+		return socketTimeout;
+	}
+
+	/**
+	 * Set read timeout applied while a request is being received
+	 * @param socketTimeout timeout in milliseconds, 0 disables it
+	 */
+	public void setSocketTimeout(int socketTimeout) {
+		this.socketTimeout = socketTimeout;
+	}
+
+	public int getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * Set how long a persistent connection may wait for its next request
+	 * @param idleTimeout timeout in milliseconds, 0 disables it
+	 */
+	public void setIdleTimeout(int idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public int getMaxRequestsPerConnection() {
+		return maxRequestsPerConnection;
+	}
+
+	/**
+	 * Set number of requests served on a persistent connection before closing it
+	 * @param maxRequestsPerConnection request limit, 0 for unlimited
+	 */
+	public void setMaxRequestsPerConnection(int maxRequestsPerConnection) {
+		this.maxRequestsPerConnection = maxRequestsPerConnection;
+	}
+
+	public int getMaxPipelineDepth() {
+		return maxPipelineDepth;
+	}
+
+	/**
+	 * Set maximum number of pipelined requests handled as a batch whose responses are flushed together
+	 * @param maxPipelineDepth batch size, 1 flushes every response
+	 */
+	public void setMaxPipelineDepth(int maxPipelineDepth) {
+		this.maxPipelineDepth = maxPipelineDepth;
+	}
+
+	public boolean isPipelineParallel() {
+		return pipelineParallel;
+	}
+
+	/**
+	 * Run listeners of pipelined GET/HEAD requests concurrently on the executor, responses keep request order
+	 * @param pipelineParallel true to enable, disabled by default
+	 */
+	public void setPipelineParallel(boolean pipelineParallel) {
+		this.pipelineParallel = pipelineParallel;
+	}
+
+	public PipelineStats getPipelineStats() {
+		return pipelineStats;
+	}
+
+	/**
+	 * Return limits applied to request heads and bodies, with counters of the limits that fired
+	 * @return request limits
+	 */
+	public RequestLimits getRequestLimits() {
+		return requestLimits;
+	}
+
+	/**
+	 * Return timer wheel expiring idle connections of the blocking engines, null if not connected
+	 * @return timer wheel
+	 */
+	public TimerWheel getTimerWheel() {
+		return timerWheel;
+	}
+
+	public ServerSocketProvider getServerSocketProvider() {
+		return serverSocketProvider;
+	}
+
+	public void setServerSocketProvider(ServerSocketProvider serverSocketProvider) {
+		this.serverSocketProvider = serverSocketProvider;
+	}
+
+	public ServerChannelProvider getServerChannelProvider() {
+		return serverChannelProvider;
+	}
+
+	/**
+	 * Set provider of listening channels used by the NIO engine, e.g. a Unix domain socket
+	 * @param serverChannelProvider channel provider
+	 */
+	public void setServerChannelProvider(ServerChannelProvider serverChannelProvider) {
+		this.serverChannelProvider = serverChannelProvider;
+	}
+	
+	/**
+	 * Return local address the server is listening on
+	 * @return InetSocketAddress or UnixDomainSocketAddress, null if not connected
+	 */
+	public SocketAddress getLocalAddress() {
+		lock.lock();
+		try {
+			if (nioEngine != null) {
+				return nioEngine.getLocalAddress();
+			}
+			return serverSocket != null ? serverSocket.getLocalSocketAddress() : null;
+		} catch (IOException e) {
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Return open connections per event loop, empty if NIO engine is not running
+	 * @return connection count of each event loop
+	 */
+	public int[] getEventLoopConnectionCounts() {
+		lock.lock();
+		try {
+			if (nioEngine == null) {
+				return new int[0];
+			}
+			final NioEventLoop[] eventLoops = nioEngine.getEventLoops();
+			final int[] result = new int[eventLoops.length];
+			for (int i = 0; i < result.length; ++i) {
+				result[i] = eventLoops[i].getConnectionCount();
+			}
+			return result;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return answer written when executor rejects a connection or request
+	 * @return serialized response or null if connection is closed without answer
+	 */
+	public byte[] getRejectionResponse() {
+		return rejectionResponse;
+	}
+
+	public RejectionPolicy getRejectionPolicy() {
+		return rejectionPolicy;
+	}
+
+	/**
+	 * Set how connections or requests rejected by the executor are answered
+	 * @param rejectionPolicy SERVICE_UNAVAILABLE (default) or CLOSE
+	 */
+	public void setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+		this.rejectionPolicy = rejectionPolicy;
+		this.rejectionResponse = buildRejectionResponse();
+	}
+
+	public AdaptiveLimiter getConcurrencyLimiter() {
+		return concurrencyLimiter;
+	}
+
+	/**
+	 * Limit requests handled concurrently by the listener, the limit adapts to handler latency.
+	 * Requests over the limit wait briefly and are answered with 503 + Retry-After
+	 * @param concurrencyLimiter limiter, null (default) disables it
+	 */
+	public void setConcurrencyLimiter(AdaptiveLimiter concurrencyLimiter) {
+		this.concurrencyLimiter = concurrencyLimiter;
+	}
+
+	public int getRetryAfter() {
+		return retryAfter;
+	}
+
+	/**
+	 * Set Retry-After seconds of the 503 rejection response
+	 * @param retryAfter seconds
+	 */
+	public void setRetryAfter(int retryAfter) {
+		this.retryAfter = retryAfter;
+		this.rejectionResponse = buildRejectionResponse();
+	}
+
+	public int getRequestTimeout() {
+		return requestTimeout;
+	}
+
+	/**
+	 * Set how long a request may take from being received until its response is ready, routes may
+	 * override it. Handlers still running are interrupted and answered with 504, requests that waited
+	 * longer in a queue are answered with 503 without running
+	 * @param requestTimeout timeout in milliseconds, 0 (default) disables it
+	 */
+	public void setRequestTimeout(int requestTimeout) {
+		this.requestTimeout = requestTimeout;
+	}
+
+	/**
+	 * Return number of handlers interrupted by their request deadline
+	 * @return timed out requests
+	 */
+	public long getTimedOutCount() {
+		return timedOutCount.sum();
+	}
+
+	/**
+	 * Return number of requests whose deadline passed before a handler ran them
+	 * @return dropped requests
+	 */
+	public long getDroppedCount() {
+		return droppedCount.sum();
+	}
+
+	void recordDeadlineExceeded(boolean dropped) {
+		(dropped ? droppedCount : timedOutCount).increment();
+	}
+
+	public boolean isInlineHandlers() {
+		return inlineHandlers;
+	}
+
+	/**
+	 * Let the NIO engine decode complete buffered requests on the event loop and answer those of
+	 * non-blocking listeners there, other requests are handed to the executor already decoded.
+	 * Blocking engines always run listeners on the connection thread. Takes effect on next connect
+	 * @param inlineHandlers true to enable, disabled by default
+	 */
+	public void setInlineHandlers(boolean inlineHandlers) {
+		this.inlineHandlers = inlineHandlers;
+	}
+
+	public int getInlineBlockThreshold() {
+		return inlineBlockThreshold;
+	}
+
+	/**
+	 * Set how long a non-blocking listener may hold the event loop before it is logged
+	 * @param inlineBlockThreshold threshold in milliseconds
+	 */
+	public void setInlineBlockThreshold(int inlineBlockThreshold) {
+		this.inlineBlockThreshold = inlineBlockThreshold;
+	}
+
+	/**
+	 * Return number of non-blocking listener calls that held the event loop longer than the threshold
+	 * @return blocked inline calls
+	 */
+	public long getBlockedInlineCount() {
+		return blockedInlineCount.sum();
+	}
+
+	public void recordBlockedInline() {
+		blockedInlineCount.increment();
+	}
+
+	public int getWriteTimeout() {
+		return writeTimeout;
+	}
+
+	/**
+	 * Set how long output queued for a connection may wait without the client reading any of it
+	 * before the connection is closed (NIO engine)
+	 * @param writeTimeout timeout in milliseconds, 0 disables it
+	 */
+	public void setWriteTimeout(int writeTimeout) {
+		this.writeTimeout = writeTimeout;
+	}
+
+	public int getMaxOutboundBuffer() {
+		return maxOutboundBuffer;
+	}
+
+	/**
+	 * Set how many response bytes a connection may queue when its socket send buffer is full, so the
+	 * worker is released instead of waiting for a slow client (NIO engine). Writers wait above it
+	 * @param maxOutboundBuffer bytes per connection, 0 disables offloading
+	 */
+	public void setMaxOutboundBuffer(int maxOutboundBuffer) {
+		this.maxOutboundBuffer = maxOutboundBuffer;
+	}
+
+	public long getMaxOutboundBytes() {
+		return maxOutboundBytes;
+	}
+
+	/**
+	 * Set how many response bytes all connections together may queue, writers wait above it
+	 * @param maxOutboundBytes global outbound budget in bytes
+	 */
+	public void setMaxOutboundBytes(long maxOutboundBytes) {
+		this.maxOutboundBytes = maxOutboundBytes;
+	}
+
+	/**
+	 * Return number of response bytes queued for slow clients
+	 * @return outbound bytes
+	 */
+	public long getOutboundBytes() {
+		return outboundBytes.get();
+	}
+
+	/**
+	 * Take bytes from the global outbound budget
+	 * @param bytes bytes to queue
+	 * @param force true to take them even above the budget, for writers that can not wait
+	 * @return true if bytes were taken
+	 */
+	public boolean reserveOutbound(int bytes, boolean force) {
+		if (force) {
+			outboundBytes.addAndGet(bytes);
+			return true;
+		}
+		long current;
+		do {
+			current = outboundBytes.get();
+			if (current + bytes > maxOutboundBytes) {
+				return false;
+			}
+		} while (!outboundBytes.compareAndSet(current, current + bytes));
+		return true;
+	}
+
+	public void releaseOutbound(int bytes) {
+		outboundBytes.addAndGet(-bytes);
+	}
+
+	/**
+	 * Return number of connections closed because the client did not read queued output in time
+	 * @return write timeouts
+	 */
+	public long getWriteTimedOutCount() {
+		return writeTimedOutCount.sum();
+	}
+
+	public void recordWriteTimeout() {
+		writeTimedOutCount.increment();
+	}
+
+	public int getMaxDiscardSize() {
+		return maxDiscardSize;
+	}
+
+	/**
+	 * Set how many bytes of a request body left unread by the listener are read and dropped to keep the
+	 * connection open, larger remainders close it
+	 * @param maxDiscardSize bytes per request, 0 closes connections whose body was not read
+	 */
+	public void setMaxDiscardSize(int maxDiscardSize) {
+		this.maxDiscardSize = maxDiscardSize;
+	}
+
+	public Engine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Select the connection engine, takes effect on next connect
+	 * @param engine BLOCKING (default), NIO or VIRTUAL
+	 */
+	public void setEngine(Engine engine) {
+		this.engine = engine;
+	}
+
+	public AcceptMode getAcceptMode() {
+		return acceptMode;
+	}
+
+	/**
+	 * Select how NIO engine accepts connections, takes effect on next connect
+	 * @param acceptMode SHARED (default) or REUSE_PORT
+	 */
+	public void setAcceptMode(AcceptMode acceptMode) {
+		this.acceptMode = acceptMode;
+	}
+
+	public int getIoThreads() {
+		return ioThreads;
+	}
+
+	/**
+	 * Set number of NIO event loops, defaults to available processors
+	 * @param ioThreads event loop count
+	 */
+	public void setIoThreads(int ioThreads) {
+		this.ioThreads = ioThreads;
+	}
+
+	public int getBacklog() {
+		return backlog;
+	}
+
+	/**
+	 * Set maximum length of the pending connection queue, 0 uses the implementation default
+	 * @param backlog pending connection queue length
+	 */
+	public void setBacklog(int backlog) {
+		this.backlog = backlog;
+	}
+	
+}
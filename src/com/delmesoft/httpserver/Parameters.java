@@ -0,0 +1,366 @@
+package com.delmesoft.httpserver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class Parameters extends AbstractMap<String, String> {
+	
+	/** Query string or application/x-www-form-urlencoded body: '&' separated, '+' and percent-encoding decoded */
+	public static final int FORM = 0;
+	/** Cookie header: ';' separated, names and values trimmed and kept as sent */
+	public static final int COOKIE = 1;
+	
+	private String source; // parsed on first access
+	private int format;
+	
+	private String[] names;
+	private String[] values;
+	private int size;
+	
+	private int[] firsts; // index of the first value of each name, computed once per content
+	private int distinct = -1; // number of names in firsts, -1 until computed
+	
+	private Set<Entry<String, String>> entrySet;
+	
+	public Parameters() {
+		names = new String[8];
+		values = new String[8];
+	}
+	
+	/**
+	 * Replace content by the pairs of a string, parsed when first read
+	 * @param source encoded pairs, null for none
+	 * @param format FORM or COOKIE
+	 */
+	public void reset(String source, int format) {
+		clear();
+		this.source = source;
+		this.format = format;
+	}
+	
+	private void parse() {
+		final String s = source;
+		source = null;
+		final char separator = format == COOKIE ? ';' : '&';
+		final int length = s.length();
+		int start = 0;
+		while (start <= length) {
+			int end = start, eq = -1;
+			for (; end < length; ++end) { // separator and first '=' of the pair in one pass
+				final char c = s.charAt(end);
+				if (c == separator) {
+					break;
+				}
+				if (c == '=' && eq < 0) {
+					eq = end;
+				}
+			}
+			if (eq > -1) {
+				add(decode(s, start, eq), decode(s, eq + 1, end));
+			} else if (trim(s, start, end) < end) { // name without value
+				add(decode(s, start, end), null);
+			}
+			start = end + 1;
+		}
+	}
+	
+	private static int trim(String s, int from, int to) {
+		while (from < to && s.charAt(from) == ' ') ++from;
+		return from;
+	}
+	
+	/**
+	 * Decode one name or value, substrings are returned as they are when nothing needs decoding
+	 */
+	private String decode(String s, int from, int to) {
+		from = trim(s, from, to);
+		while (to > from && s.charAt(to - 1) == ' ') --to;
+		if (format == COOKIE) {
+			return s.substring(from, to);
+		}
+		int i = from;
+		while (i < to && s.charAt(i) != '%' && s.charAt(i) != '+') ++i;
+		if (i == to) {
+			return s.substring(from, to);
+		}
+		final StringBuilder sb = new StringBuilder(to - from);
+		sb.append(s, from, i);
+		byte[] bytes = null; // percent-encoded UTF-8 sequence
+		int count = 0;
+		for (; i < to; ++i) {
+			final char c = s.charAt(i);
+			int h, l;
+			if (c == '%' && i + 2 < to && (h = hex(s.charAt(i + 1))) > -1 && (l = hex(s.charAt(i + 2))) > -1) {
+				if (bytes == null) {
+					bytes = new byte[(to - i) / 3 + 1];
+				}
+				bytes[count++] = (byte) ((h << 4) | l);
+				i += 2;
+				continue;
+			}
+			if (count > 0) {
+				sb.append(new String(bytes, 0, count, StandardCharsets.UTF_8));
+				count = 0;
+			}
+			sb.append(c == '+' ? ' ' : c); // malformed escapes are kept as they are
+		}
+		if (count > 0) {
+			sb.append(new String(bytes, 0, count, StandardCharsets.UTF_8));
+		}
+		return sb.toString();
+	}
+	
+	private static int hex(char c) {
+		if (c >= '0' && c <= '9') return c - '0';
+		if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+		if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+		return -1;
+	}
+	
+	private void ensureParsed() {
+		if (source != null) {
+			parse();
+		}
+	}
+	
+	private void add(String name, String value) {
+		if (size == names.length) {
+			names = Arrays.copyOf(names, size << 1);
+			values = Arrays.copyOf(values, size << 1);
+		}
+		names[size] = name;
+		values[size++] = value;
+		distinct = -1;
+	}
+	
+	private int indexOf(Object name) {
+		ensureParsed();
+		for (int i = 0; i < size; ++i) {
+			if (names[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Return every value sent for a name, in order
+	 * @param name parameter name
+	 * @return values, empty if none
+	 */
+	public List<String> getAll(String name) {
+		ensureParsed();
+		List<String> result = Collections.emptyList();
+		for (int i = 0; i < size; ++i) {
+			if (names[i].equals(name)) {
+				if (result.isEmpty()) {
+					result = new ArrayList<>(2);
+				}
+				result.add(values[i]);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Return first value sent for a name
+	 */
+	@Override
+	public String get(Object name) {
+		final int index = indexOf(name);
+		return index < 0 ? null : values[index];
+	}
+	
+	@Override
+	public boolean containsKey(Object name) {
+		return indexOf(name) > -1;
+	}
+	
+	/**
+	 * Replace every value of a name
+	 */
+	@Override
+	public String put(String name, String value) {
+		final String result = remove(name);
+		add(name, value);
+		return result;
+	}
+	
+	/**
+	 * Append a value, existing ones are kept
+	 * @param name parameter name
+	 * @param value parameter value
+	 */
+	public void append(String name, String value) {
+		ensureParsed();
+		add(name, value);
+	}
+	
+	/**
+	 * Remove every value of a name
+	 * @return first value removed
+	 */
+	@Override
+	public String remove(Object name) {
+		int index = indexOf(name);
+		if (index < 0) {
+			return null;
+		}
+		final String result = values[index];
+		for (; index < size; ++index) {
+			if (names[index].equals(name)) {
+				removeAt(index--);
+			}
+		}
+		return result;
+	}
+	
+	private void removeAt(int index) {
+		final int n = size - index - 1;
+		System.arraycopy(names, index + 1, names, index, n);
+		System.arraycopy(values, index + 1, values, index, n);
+		--size;
+		names[size] = null;
+		values[size] = null;
+		distinct = -1;
+	}
+	
+	/**
+	 * Find the first value of each name, in order, once until the content changes
+	 * @return number of names
+	 */
+	private int distinct() {
+		ensureParsed();
+		if (distinct >= 0) {
+			return distinct;
+		}
+		if (firsts == null || firsts.length < size) {
+			firsts = new int[names.length];
+		}
+		int count = 0;
+		if (size <= 16) {
+			for (int i = 0; i < size; ++i) {
+				int j = 0;
+				while (j < i && !names[j].equals(names[i])) ++j;
+				if (j == i) {
+					firsts[count++] = i;
+				}
+			}
+		} else {
+			final Set<String> seen = new HashSet<>(size << 1);
+			for (int i = 0; i < size; ++i) {
+				if (seen.add(names[i])) {
+					firsts[count++] = i;
+				}
+			}
+		}
+		return distinct = count;
+	}
+	
+	/**
+	 * Return number of names, a name sent more than once counts once
+	 */
+	@Override
+	public int size() {
+		return distinct();
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		ensureParsed();
+		return size == 0;
+	}
+	
+	@Override
+	public void clear() {
+		source = null;
+		Arrays.fill(names, 0, size, null);
+		Arrays.fill(values, 0, size, null);
+		size = 0;
+		distinct = -1;
+	}
+	
+	/**
+	 * Entries in order, one per name holding its first value. Repeated values are only returned by getAll
+	 */
+	@Override
+	public Set<Entry<String, String>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new AbstractSet<Entry<String, String>>() {
+				@Override
+				public Iterator<Entry<String, String>> iterator() {
+					return new Iterator<Entry<String, String>>() {
+						int index; // among names
+						boolean removable;
+						@Override
+						public boolean hasNext() {
+							return index < distinct();
+						}
+						@Override
+						public Entry<String, String> next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							removable = true;
+							final int i = firsts[index++];
+							return new SimpleImmutableEntry<>(names[i], values[i]);
+						}
+						@Override
+						public void remove() {
+							if (!removable) {
+								throw new IllegalStateException();
+							}
+							removable = false;
+							Parameters.this.remove(names[firsts[--index]]); // names before it keep their position
+						}
+					};
+				}
+				@Override
+				public int size() {
+					return Parameters.this.size();
+				}
+			};
+		}
+		return entrySet;
+	}
+	
+}
@@ -0,0 +1,105 @@
+package com.delmesoft.httpserver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class PipelineStats {
+	
+	private final LongAdder batchCount;
+	private final LongAdder requestCount;
+	private final AtomicInteger maxDepth;
+
+	public PipelineStats() {
+		batchCount = new LongAdder();
+		requestCount = new LongAdder();
+		maxDepth = new AtomicInteger();
+	}
+
+	/**
+	 * Record a batch of responses written with a single flush
+	 * @param depth number of requests in batch
+	 */
+	public void record(int depth) {
+		if (depth > 1) {
+			batchCount.increment();
+			requestCount.add(depth);
+			maxDepth.accumulateAndGet(depth, Math::max);
+		}
+	}
+
+	/**
+	 * Return number of batches holding more than one pipelined request
+	 * @return batch count
+	 */
+	public long getBatchCount() {
+		return batchCount.sum();
+	}
+
+	/**
+	 * Return number of requests served inside pipelined batches
+	 * @return request count
+	 */
+	public long getRequestCount() {
+		return requestCount.sum();
+	}
+
+	/**
+	 * Return mean pipelining depth of batches
+	 * @return mean depth
+	 */
+	public double getMeanDepth() {
+		final long batches = batchCount.sum();
+		return batches == 0 ? 0 : (double) requestCount.sum() / batches;
+	}
+
+	/**
+	 * Return deepest batch observed
+	 * @return max depth
+	 */
+	public int getMaxDepth() {
+		return maxDepth.get();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("PipelineStats [batchCount=");
+		builder.append(getBatchCount());
+		builder.append(", requestCount=");
+		builder.append(getRequestCount());
+		builder.append(", maxDepth=");
+		builder.append(getMaxDepth());
+		builder.append("]");
+		return builder.toString();
+	}
+
+}
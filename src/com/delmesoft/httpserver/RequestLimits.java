@@ -0,0 +1,233 @@
+package com.delmesoft.httpserver;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class RequestLimits {
+	
+	public static final int DEFAULT_MAX_REQUEST_LINE_LENGTH = 1024 << 3;
+	public static final int DEFAULT_MAX_HEADER_SIZE = 1024 << 4;
+	public static final int DEFAULT_MAX_HEADER_COUNT = 100;
+	public static final long DEFAULT_MAX_CONTENT_LENGTH = 0;
+	public static final int DEFAULT_MAX_FORM_SIZE = 1024 << 11; // 2 MB
+	public static final int DEFAULT_HEADER_TIMEOUT = 10_000;
+	
+	private volatile int maxRequestLineLength;
+	private volatile int maxHeaderSize;
+	private volatile int maxHeaderCount;
+	private volatile long maxContentLength;
+	private volatile int maxFormSize;
+	private volatile int headerTimeout;
+	
+	private final LongAdder requestLineTooLongCount;
+	private final LongAdder headerTooLargeCount;
+	private final LongAdder headerCountExceededCount;
+	private final LongAdder contentTooLargeCount;
+	private final LongAdder headerTimeoutCount;
+	
+	public RequestLimits() {
+		maxRequestLineLength = DEFAULT_MAX_REQUEST_LINE_LENGTH;
+		maxHeaderSize = DEFAULT_MAX_HEADER_SIZE;
+		maxHeaderCount = DEFAULT_MAX_HEADER_COUNT;
+		maxContentLength = DEFAULT_MAX_CONTENT_LENGTH;
+		maxFormSize = DEFAULT_MAX_FORM_SIZE;
+		headerTimeout = DEFAULT_HEADER_TIMEOUT;
+		requestLineTooLongCount = new LongAdder();
+		headerTooLargeCount = new LongAdder();
+		headerCountExceededCount = new LongAdder();
+		contentTooLargeCount = new LongAdder();
+		headerTimeoutCount = new LongAdder();
+	}
+	
+	public int getMaxRequestLineLength() {
+		return maxRequestLineLength;
+	}
+	
+	/**
+	 * Set longest request line accepted, longer ones are answered with 414
+	 * @param maxRequestLineLength bytes without CRLF, 0 for unlimited
+	 * @return this
+	 */
+	public RequestLimits setMaxRequestLineLength(int maxRequestLineLength) {
+		this.maxRequestLineLength = maxRequestLineLength;
+		return this;
+	}
+	
+	public int getMaxHeaderSize() {
+		return maxHeaderSize;
+	}
+	
+	/**
+	 * Set how many bytes the header fields of a request may take, larger heads are answered with 431
+	 * @param maxHeaderSize bytes of every header line, CRLF included, 0 for unlimited
+	 * @return this
+	 */
+	public RequestLimits setMaxHeaderSize(int maxHeaderSize) {
+		this.maxHeaderSize = maxHeaderSize;
+		return this;
+	}
+	
+	public int getMaxHeaderCount() {
+		return maxHeaderCount;
+	}
+	
+	/**
+	 * Set how many header fields a request may have, more are answered with 431
+	 * @param maxHeaderCount header fields, 0 for unlimited
+	 * @return this
+	 */
+	public RequestLimits setMaxHeaderCount(int maxHeaderCount) {
+		this.maxHeaderCount = maxHeaderCount;
+		return this;
+	}
+	
+	public long getMaxContentLength() {
+		return maxContentLength;
+	}
+	
+	/**
+	 * Set largest request body, larger Content-Length is answered with 413 before calling the listener
+	 * and chunked bodies fail with ContentTooLargeException once they grow past it
+	 * @param maxContentLength bytes, 0 for unlimited
+	 * @return this
+	 */
+	public RequestLimits setMaxContentLength(long maxContentLength) {
+		this.maxContentLength = maxContentLength;
+		return this;
+	}
+	
+	public int getMaxFormSize() {
+		return maxFormSize;
+	}
+	
+	/**
+	 * Set largest urlencoded form body read into parameters, larger forms are answered with 413
+	 * @param maxFormSize bytes, 0 for unlimited
+	 * @return this
+	 */
+	public RequestLimits setMaxFormSize(int maxFormSize) {
+		this.maxFormSize = maxFormSize;
+		return this;
+	}
+	
+	public int getHeaderTimeout() {
+		return headerTimeout;
+	}
+	
+	/**
+	 * Set how long a request head may take to arrive from its first byte, however often the client sends
+	 * some of it. The connection is closed when it expires
+	 * @param headerTimeout timeout in milliseconds, 0 for the socket timeout between reads only
+	 * @return this
+	 */
+	public RequestLimits setHeaderTimeout(int headerTimeout) {
+		this.headerTimeout = headerTimeout;
+		return this;
+	}
+	
+	public void recordRequestLineTooLong() {
+		requestLineTooLongCount.increment();
+	}
+	
+	public void recordHeaderTooLarge() {
+		headerTooLargeCount.increment();
+	}
+	
+	public void recordHeaderCountExceeded() {
+		headerCountExceededCount.increment();
+	}
+	
+	public void recordContentTooLarge() {
+		contentTooLargeCount.increment();
+	}
+	
+	public void recordHeaderTimeout() {
+		headerTimeoutCount.increment();
+	}
+	
+	/**
+	 * Return number of requests answered with 414
+	 * @return request line limit hits
+	 */
+	public long getRequestLineTooLongCount() {
+		return requestLineTooLongCount.sum();
+	}
+	
+	/**
+	 * Return number of requests answered with 431 because of the header size
+	 * @return header size limit hits
+	 */
+	public long getHeaderTooLargeCount() {
+		return headerTooLargeCount.sum();
+	}
+	
+	/**
+	 * Return number of requests answered with 431 because of the number of header fields
+	 * @return header count limit hits
+	 */
+	public long getHeaderCountExceededCount() {
+		return headerCountExceededCount.sum();
+	}
+	
+	/**
+	 * Return number of requests whose body went past the content limit
+	 * @return content limit hits
+	 */
+	public long getContentTooLargeCount() {
+		return contentTooLargeCount.sum();
+	}
+	
+	/**
+	 * Return number of connections closed because a request head did not arrive in time
+	 * @return header timeouts
+	 */
+	public long getHeaderTimeoutCount() {
+		return headerTimeoutCount.sum();
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("RequestLimits [requestLineTooLongCount=");
+		builder.append(getRequestLineTooLongCount());
+		builder.append(", headerTooLargeCount=");
+		builder.append(getHeaderTooLargeCount());
+		builder.append(", headerCountExceededCount=");
+		builder.append(getHeaderCountExceededCount());
+		builder.append(", contentTooLargeCount=");
+		builder.append(getContentTooLargeCount());
+		builder.append(", headerTimeoutCount=");
+		builder.append(getHeaderTimeoutCount());
+		builder.append("]");
+		return builder.toString();
+	}
+	
+}
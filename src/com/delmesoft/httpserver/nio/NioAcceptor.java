@@ -0,0 +1,70 @@
+package com.delmesoft.httpserver.nio;
+
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.logging.Level;
+
+import com.delmesoft.httpserver.HttpServer;
+import com.delmesoft.httpserver.HttpServerImpl;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class NioAcceptor extends Thread {
+	
+	private final ServerSocketChannel serverSocketChannel;
+	private final NioEventLoop[] eventLoops;
+	private final HttpServerImpl httpServer;
+	
+	private int next;
+
+	public NioAcceptor(ServerSocketChannel serverSocketChannel, NioEventLoop[] eventLoops, HttpServerImpl httpServer) {
+		super(NioAcceptor.class.getName());
+		this.serverSocketChannel = serverSocketChannel;
+		this.eventLoops = eventLoops;
+		this.httpServer = httpServer;
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (!isInterrupted()) {
+				final SocketChannel socketChannel = serverSocketChannel.accept(); // blocking
+				eventLoops[next].dispatch(socketChannel); // round robin
+				next = (next + 1) % eventLoops.length;
+			}
+		} catch (Exception e) {
+			if(httpServer.isConnected())
+				HttpServer.log.log(Level.SEVERE, "Internal Server Error", e);
+		} finally {
+			httpServer.disconnect();
+		}
+	}
+
+}
@@ -0,0 +1,181 @@
+package com.delmesoft.httpserver.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import com.delmesoft.httpserver.HttpServer;
+import com.delmesoft.httpserver.HttpServerImpl;
+import com.delmesoft.httpserver.HttpServerImpl.AcceptMode;
+import com.delmesoft.httpserver.utils.ServerChannelProvider;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class NioEngine {
+	
+	private final HttpServerImpl httpServer;
+	
+	private NioEventLoop[] eventLoops;
+	private ServerSocketChannel[] serverSocketChannels;
+	private NioAcceptor acceptor;
+	private Thread watchdog;
+
+	public NioEngine(HttpServerImpl httpServer) {
+		this.httpServer = httpServer;
+	}
+
+	/**
+	 * Bind listening channels and start event loops
+	 * @param address local address
+	 * @param daemon set event loop threads daemon
+	 * @throws IOException
+	 */
+	public void start(InetSocketAddress address, boolean daemon) throws IOException {
+		final int ioThreads = Math.max(1, httpServer.getIoThreads());
+		final int backlog = httpServer.getBacklog();
+		eventLoops = new NioEventLoop[ioThreads];
+		for (int i = 0; i < ioThreads; ++i) {
+			eventLoops[i] = new NioEventLoop(i, httpServer);
+			eventLoops[i].setDaemon(daemon);
+		}
+		final ServerChannelProvider provider = httpServer.getServerChannelProvider();
+		AcceptMode acceptMode = httpServer.getAcceptMode();
+		if (acceptMode == AcceptMode.REUSE_PORT && !isReusePortSupported(provider)) {
+			HttpServer.log.log(Level.WARNING, "SO_REUSEPORT not supported, using a shared acceptor");
+			acceptMode = AcceptMode.SHARED;
+		}
+		if (acceptMode == AcceptMode.REUSE_PORT) { // one listening channel per event loop, the kernel balances connections
+			serverSocketChannels = new ServerSocketChannel[ioThreads];
+			for (int i = 0; i < ioThreads; ++i) {
+				serverSocketChannels[i] = provider.openServerChannel();
+				serverSocketChannels[i].setOption(StandardSocketOptions.SO_REUSEPORT, true);
+				provider.bind(serverSocketChannels[i], address, backlog);
+				if (i == 0 && address.getPort() == 0) { // bind the rest to the ephemeral port chosen by the first one
+					address = new InetSocketAddress(address.getAddress(), ((InetSocketAddress) serverSocketChannels[0].getLocalAddress()).getPort());
+				}
+				eventLoops[i].bind(serverSocketChannels[i]);
+			}
+		} else { // one acceptor distributing connections round robin
+			serverSocketChannels = new ServerSocketChannel[] { provider.openServerChannel() };
+			provider.bind(serverSocketChannels[0], address, backlog);
+			acceptor = new NioAcceptor(serverSocketChannels[0], eventLoops, httpServer);
+			acceptor.setDaemon(daemon);
+		}
+		for (NioEventLoop eventLoop : eventLoops) {
+			eventLoop.start();
+		}
+		if (acceptor != null) {
+			acceptor.start();
+		}
+		if (httpServer.isInlineHandlers()) {
+			watchdog = new Thread(this::watch, NioEngine.class.getName() + "-watchdog");
+			watchdog.setDaemon(true);
+			watchdog.start();
+		}
+	}
+	
+	/**
+	 * Report non-blocking listeners holding an event loop longer than the threshold
+	 */
+	private void watch() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				final int threshold = Math.max(1, httpServer.getInlineBlockThreshold());
+				Thread.sleep(threshold);
+				final long now = System.nanoTime();
+				for (NioEventLoop eventLoop : eventLoops) {
+					eventLoop.checkInline(now, TimeUnit.MILLISECONDS.toNanos(threshold));
+				}
+			}
+		} catch (InterruptedException ignore) {
+		}
+	}
+
+	private static boolean isReusePortSupported(ServerChannelProvider provider) throws IOException {
+		try (ServerSocketChannel serverSocketChannel = provider.openServerChannel()) { // not supported by Unix domain sockets
+			return serverSocketChannel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+		}
+	}
+
+	public void close() {
+		if (serverSocketChannels != null) {
+			for (ServerSocketChannel serverSocketChannel : serverSocketChannels) {
+				if (serverSocketChannel != null) {
+					try { serverSocketChannel.close(); } catch (Exception ignore) {}
+				}
+			}
+			try { httpServer.getServerChannelProvider().release(); } catch (Exception ignore) {}
+		}
+		if (acceptor != null) {
+			acceptor.interrupt();
+		}
+		if (watchdog != null) {
+			watchdog.interrupt();
+		}
+		if (eventLoops != null) {
+			for (NioEventLoop eventLoop : eventLoops) {
+				if (eventLoop != null) {
+					eventLoop.shutdown();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the first listening socket
+	 * @return server socket, null if channels are not bound to an internet address
+	 */
+	public ServerSocket getServerSocket() {
+		try {
+			return serverSocketChannels[0].socket();
+		} catch (UnsupportedOperationException e) { // Unix domain socket
+			return null;
+		}
+	}
+	
+	/**
+	 * Return local address of the first listening channel
+	 * @return InetSocketAddress or UnixDomainSocketAddress
+	 * @throws IOException
+	 */
+	public SocketAddress getLocalAddress() throws IOException {
+		return serverSocketChannels[0].getLocalAddress();
+	}
+
+	public NioEventLoop[] getEventLoops() {
+		return eventLoops;
+	}
+
+}
@@ -0,0 +1,294 @@
+package com.delmesoft.httpserver.nio;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import com.delmesoft.httpserver.HttpRequest;
+import com.delmesoft.httpserver.HttpServer;
+import com.delmesoft.httpserver.HttpServerImpl;
+import com.delmesoft.httpserver.utils.TimerWheel;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class NioEventLoop extends Thread {
+	
+	private final HttpServerImpl httpServer;
+	
+	private final Selector selector;
+	private final Queue<Runnable> taskQueue;
+	
+	private final AtomicInteger connectionCount;
+	private final AtomicLong acceptedCount;
+	
+	private final TimerWheel timerWheel;
+	
+	private ServerSocketChannel serverSocketChannel;
+	
+	private volatile long inlineStart; // nanos, 0 while no non-blocking listener runs
+	private volatile HttpRequest inlineRequest;
+	private long reportedStart; // owned by the watchdog
+
+	public NioEventLoop(int index, HttpServerImpl httpServer) throws IOException {
+		super(NioEventLoop.class.getName() + "-" + index);
+		this.httpServer = httpServer;
+		this.selector = Selector.open();
+		this.taskQueue = new ConcurrentLinkedQueue<>();
+		this.connectionCount = new AtomicInteger();
+		this.acceptedCount = new AtomicLong();
+		this.timerWheel = new TimerWheel(); // advanced by this loop, no extra thread
+	}
+	
+	/**
+	 * Accept connections of this listening channel on this event loop, must be called before start
+	 * @param serverSocketChannel listening channel
+	 * @throws IOException
+	 */
+	public void bind(ServerSocketChannel serverSocketChannel) throws IOException {
+		this.serverSocketChannel = serverSocketChannel;
+		serverSocketChannel.configureBlocking(false);
+		serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (!isInterrupted()) {
+				selector.select(timerWheel.getTickMillis());
+				runTasks();
+				final Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+				while (iterator.hasNext()) {
+					final SelectionKey key = iterator.next();
+					iterator.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.attachment() == null) {
+						if (key.isAcceptable()) {
+							accept();
+						}
+						continue;
+					}
+					final NioHttpClient httpClient = (NioHttpClient) key.attachment();
+					try {
+						if (key.isWritable()) {
+							httpClient.onWritable();
+						}
+						if (key.isValid() && key.isReadable()) {
+							httpClient.onReadable();
+						}
+					} catch (CancelledKeyException e) { // disconnected by a worker meanwhile
+						httpClient.disconnect();
+					}
+				}
+				timerWheel.advance(System.currentTimeMillis());
+			}
+		} catch (Exception e) {
+			if(httpServer.isConnected())
+				HttpServer.log.log(Level.SEVERE, "Internal Server Error", e);
+		} finally {
+			close();
+			httpServer.disconnect();
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel socketChannel;
+		while ((socketChannel = serverSocketChannel.accept()) != null) {
+			register(socketChannel);
+		}
+	}
+	
+	/**
+	 * Register an accepted channel, called from the event loop
+	 * @param socketChannel accepted channel
+	 */
+	private void register(SocketChannel socketChannel) throws IOException {
+		try {
+			socketChannel.configureBlocking(false);
+			final NioHttpClient httpClient = new NioHttpClient(httpServer.nextClientId(), socketChannel, this, httpServer);
+			// register first so a channel that fails here is neither counted nor tracked by the server
+			httpClient.setSelectionKey(socketChannel.register(selector, SelectionKey.OP_READ, httpClient));
+			connectionCount.incrementAndGet();
+			acceptedCount.incrementAndGet();
+			httpServer.addClient(httpClient);
+			httpClient.scheduleIdleTimeout();
+		} catch (IOException e) { // connection reset before registration
+			try { socketChannel.close(); } catch (Exception ignore) {}
+		}
+	}
+	
+	/**
+	 * Hand an accepted channel over to this event loop
+	 * @param socketChannel accepted channel
+	 */
+	public void dispatch(SocketChannel socketChannel) {
+		execute(() -> {
+			try {
+				register(socketChannel);
+			} catch (IOException ignore) {
+			}
+		});
+	}
+	
+	void onDisconnect(NioHttpClient httpClient) {
+		connectionCount.decrementAndGet();
+	}
+	
+	private void runTasks() {
+		Runnable task;
+		while ((task = taskQueue.poll()) != null) {
+			try {
+				task.run();
+			} catch (Exception e) {
+				HttpServer.log.log(Level.WARNING, "Error running event loop task", e);
+			}
+		}
+	}
+
+	/**
+	 * Run a task on the event loop thread
+	 * @param task task to run
+	 */
+	public void execute(Runnable task) {
+		taskQueue.add(task);
+		if (Thread.currentThread() != this) {
+			selector.wakeup();
+		}
+	}
+	
+	/**
+	 * Mark start of a non-blocking listener call on this loop
+	 * @param httpRequest request being handled
+	 */
+	void beginInline(HttpRequest httpRequest) {
+		inlineRequest = httpRequest;
+		inlineStart = System.nanoTime();
+	}
+	
+	/**
+	 * Mark end of a non-blocking listener call, calls above the threshold are logged
+	 */
+	void endInline() {
+		final long elapsed = System.nanoTime() - inlineStart;
+		final HttpRequest httpRequest = inlineRequest;
+		inlineStart = 0;
+		inlineRequest = null;
+		if (elapsed > TimeUnit.MILLISECONDS.toNanos(httpServer.getInlineBlockThreshold())) {
+			httpServer.recordBlockedInline();
+			HttpServer.log.log(Level.WARNING, String.format("Non-blocking listener held %s for %d ms: %s %s", 
+					getName(), TimeUnit.NANOSECONDS.toMillis(elapsed), httpRequest.getMethod(), httpRequest.getPath()));
+		}
+	}
+	
+	/**
+	 * Log where a non-blocking listener is stuck, called periodically by the watchdog
+	 * @param now current System.nanoTime()
+	 * @param threshold nanos a listener may hold the loop
+	 */
+	void checkInline(long now, long threshold) {
+		final long start = inlineStart;
+		final HttpRequest httpRequest = inlineRequest;
+		if (start != 0 && start != reportedStart && now - start > threshold && httpRequest != null) {
+			reportedStart = start; // once per call
+			final Throwable trace = new Throwable("Event loop stack");
+			trace.setStackTrace(getStackTrace());
+			HttpServer.log.log(Level.WARNING, String.format("Non-blocking listener is blocking %s: %s %s", 
+					getName(), httpRequest.getMethod(), httpRequest.getPath()), trace);
+		}
+	}
+	
+	public boolean inEventLoop() {
+		return Thread.currentThread() == this;
+	}
+	
+	/**
+	 * Return number of open connections owned by this event loop
+	 * @return connection count
+	 */
+	public int getConnectionCount() {
+		return connectionCount.get();
+	}
+	
+	/**
+	 * Return number of connections accepted by this event loop since start
+	 * @return accepted connection count
+	 */
+	public long getAcceptedCount() {
+		return acceptedCount.get();
+	}
+	
+	/**
+	 * Return timer wheel expiring idle and slow connections of this loop
+	 * @return timer wheel
+	 */
+	public TimerWheel getTimerWheel() {
+		return timerWheel;
+	}
+	
+	public HttpServerImpl getHttpServer() {
+		return httpServer;
+	}
+
+	/**
+	 * Stop the event loop, one that never started, because binding failed, releases its selector here
+	 */
+	public void shutdown() {
+		if (getState() == State.NEW) {
+			close();
+		} else {
+			interrupt();
+		}
+	}
+
+	private void close() {
+		for (SelectionKey key : selector.keys()) {
+			final Object attachment = key.attachment();
+			if (attachment instanceof NioHttpClient) {
+				((NioHttpClient) attachment).disconnect();
+			}
+		}
+		if (serverSocketChannel != null) {
+			try { serverSocketChannel.close(); } catch (Exception ignore) {}
+		}
+		try { selector.close(); } catch (Exception ignore) {}
+	}
+
+}
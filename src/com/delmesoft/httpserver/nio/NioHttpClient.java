@@ -0,0 +1,496 @@
+package com.delmesoft.httpserver.nio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.delmesoft.httpserver.HttpClient;
+import com.delmesoft.httpserver.HttpException;
+import com.delmesoft.httpserver.HttpListener;
+import com.delmesoft.httpserver.HttpRequest;
+import com.delmesoft.httpserver.HttpResponse;
+import com.delmesoft.httpserver.HttpServerImpl;
+import com.delmesoft.httpserver.RequestLimits;
+import com.delmesoft.httpserver.Session;
+import com.delmesoft.httpserver.utils.PipelineOutputStream;
+import com.delmesoft.httpserver.utils.TimerWheel;
+import com.delmesoft.httpserver.utils.TimerWheel.Timeout;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class NioHttpClient extends HttpClient {
+	
+	private final SocketChannel socketChannel;
+	private final NioEventLoop eventLoop;
+	
+	private final NioInputStream inputStream;
+	private volatile NioOutputStream outputStream; // created with the session
+	
+	private Session session; // created on first request, used by one worker at a time
+	private final InetSocketAddress remoteAddress;
+	
+	private SelectionKey selectionKey;
+	
+	private volatile boolean dispatched; // written under inputStream.lock
+	private volatile long dispatchTime; // queued on the server executor since
+	
+	private Timeout timeout; // guarded by inputStream.lock
+	private boolean reading; // guarded by inputStream.lock
+	
+	private volatile int soTimeout;
+	private volatile boolean closing; // last response is still queued
+
+	public NioHttpClient(long id, SocketChannel socketChannel, NioEventLoop eventLoop, HttpServerImpl httpServer) throws IOException {
+		super(id, socketOf(socketChannel), httpServer);
+		this.socketChannel = socketChannel;
+		this.eventLoop = eventLoop;
+		this.soTimeout = httpServer.getSocketTimeout();
+		this.inputStream = new NioInputStream(this);
+		final SocketAddress remoteAddress = socketChannel.getRemoteAddress();
+		// Unix domain peers have no internet address
+		this.remoteAddress = remoteAddress instanceof InetSocketAddress ? (InetSocketAddress) remoteAddress : null;
+		setConnected(true);
+	}
+	
+	private Session newSession() {
+		outputStream = new NioOutputStream(this);
+		return new Session(getSocket(), inputStream, new PipelineOutputStream(outputStream)) {
+			@Override
+			public void setSoTimeout(int timeout) {
+				soTimeout = timeout;
+			}
+			@Override
+			public void close() {
+				disconnect();
+			}
+		};
+	}
+
+	/**
+	 * Return socket adaptor of an internet channel
+	 * @return socket, null for Unix domain channels
+	 */
+	private static Socket socketOf(SocketChannel socketChannel) throws IOException {
+		return socketChannel.getLocalAddress() instanceof InetSocketAddress ? socketChannel.socket() : null;
+	}
+
+	/**
+	 * Handle buffered requests, runs on the server executor. Request objects only live
+	 * while requests are being handled, idle connections keep none
+	 */
+	@Override
+	public void run() {
+		resetExecutor();
+		serve(null, null);
+	}
+	
+	@Override
+	protected void resume(HttpRequest httpRequest, HttpResponse httpResponse) {
+		serve(httpRequest, httpResponse);
+	}
+	
+	private void serve(HttpRequest httpRequest, HttpResponse httpResponse) {
+		final int handOffs = getHandOffCount();
+		boolean keepAlive = false;
+		try {
+			if (session == null) {
+				session = newSession();
+			}
+			boolean decoded = httpRequest != null;
+			long queuedSince = 0;
+			if (!decoded) {
+				httpRequest = newRequest(remoteAddress, session);
+				queuedSince = dispatchTime;
+			}
+			do {
+				if (httpResponse != null) { // completed asynchronously, connection stayed dispatched meanwhile
+					keepAlive = handleResponse(httpRequest, httpResponse, session);
+					httpResponse = null;
+				} else {
+					keepAlive = (decoded || read(httpRequest, queuedSince)) && handlePipeline(httpRequest, session);
+				}
+				decoded = false;
+				queuedSince = 0;
+				if (getHandOffCount() != handOffs) {
+					return; // handed to a route executor or waiting for an asynchronous response
+				}
+			} while (keepAlive && !park());
+		} catch (HttpException e) { // malformed request or limit exceeded
+			keepAlive = false;
+			if (getHandOffCount() == handOffs) {
+				rejectRequest(e, session);
+			}
+		} catch (Exception e) { // ignore
+			keepAlive = false;
+		} finally {
+			if (!keepAlive && getHandOffCount() == handOffs) {
+				disconnectWhenFlushed();
+			}
+		}
+	}
+
+	/**
+	 * Decode next request, its deadline starts when it was queued on the server executor
+	 * @param queuedSince dispatch time, 0 if request was not dispatched by the event loop
+	 */
+	private static boolean read(HttpRequest httpRequest, long queuedSince) throws Exception {
+		if (!httpRequest.read()) {
+			return false;
+		}
+		if (queuedSince != 0 && queuedSince - httpRequest.getReceivedTime() < 0) {
+			httpRequest.setReceivedTime(queuedSince);
+		}
+		return true;
+	}
+	
+	RequestLimits getRequestLimits() {
+		return httpServer.getRequestLimits();
+	}
+	
+	@Override
+	protected TimerWheel getTimerWheel() {
+		return eventLoop.getTimerWheel();
+	}
+
+	/**
+	 * Release worker thread if no complete request is buffered
+	 * @return true if connection was returned to the event loop
+	 */
+	private boolean park() {
+		final boolean eof;
+		inputStream.lock.lock();
+		try {
+			inputStream.resetScan();
+			if (inputStream.hasRequest()) {
+				return false;
+			}
+			dispatched = false;
+			inputStream.releaseIfDrained();
+			eof = inputStream.isEof();
+			if (!eof) {
+				scheduleIdleTimeout();
+			}
+		} finally {
+			inputStream.lock.unlock();
+		}
+		if (eof) {
+			disconnectWhenFlushed();
+		}
+		return true;
+	}
+
+	@Override
+	protected boolean hasBufferedRequest() {
+		inputStream.lock.lock();
+		try {
+			inputStream.resetScan();
+			return inputStream.hasRequest();
+		} finally {
+			inputStream.lock.unlock();
+		}
+	}
+
+	void onReadable() {
+		if (closing) { // requests after the last response are ignored
+			selectionKey.interestOps(selectionKey.interestOps() & ~SelectionKey.OP_READ);
+			return;
+		}
+		boolean dispatch = false, close = false;
+		inputStream.lock.lock();
+		try {
+			final int n = inputStream.fill(socketChannel);
+			if (n < 0) { // buffer is full, wait until worker consumes it, or end of stream
+				selectionKey.interestOps(selectionKey.interestOps() & ~SelectionKey.OP_READ);
+			}
+			if (!dispatched) {
+				if (n == -1) {
+					close = true;
+				} else if (inputStream.hasRequest()) {
+					cancelTimeout();
+					dispatched = dispatch = true;
+					dispatchTime = System.nanoTime();
+				} else if (!reading) { // first bytes of a request, whole head must arrive within read timeout
+					scheduleReadTimeout();
+				}
+			}
+		} catch (IOException | CancelledKeyException e) { // key is cancelled when a worker disconnects meanwhile
+			close = true;
+		} finally {
+			inputStream.lock.unlock();
+		}
+		if (close) {
+			disconnect();
+		} else if (dispatch) {
+			if (httpServer.isInlineHandlers()) {
+				serveInline();
+			} else {
+				dispatch(null);
+			}
+		}
+	}
+	
+	/**
+	 * Hand the connection to the server executor
+	 * @param httpRequest request already decoded by the event loop, null to decode next one
+	 */
+	private void dispatch(HttpRequest httpRequest) {
+		try {
+			if (httpRequest == null) {
+				httpServer.getExecutor().execute(this);
+			} else {
+				resetExecutor();
+				httpServer.getExecutor().execute(() -> resume(httpRequest, null));
+			}
+		} catch (RejectedExecutionException e) { // overloaded, answer from event loop
+			reject();
+		}
+	}
+	
+	/**
+	 * Answer buffered requests of non-blocking listeners on the event loop, the connection is handed
+	 * to the server executor at the first request that may block
+	 */
+	private void serveInline() {
+		final HttpListener httpListener = httpServer.getHttpListener();
+		try {
+			do {
+				if (!hasCompleteRequest()) { // decoding would wait for the rest of the body
+					dispatch(null);
+					return;
+				}
+				if (session == null) {
+					session = newSession();
+				}
+				final HttpRequest httpRequest = newRequest(remoteAddress, session);
+				if (!httpRequest.read()) {
+					disconnect();
+					return;
+				}
+				if (httpRequest.hasContent() || !httpListener.isNonBlocking(httpRequest) || httpListener.isAsync(httpRequest) 
+						|| httpListener.getExecutor(httpRequest) != null) {
+					dispatch(httpRequest);
+					return;
+				}
+				final boolean keepAlive;
+				eventLoop.beginInline(httpRequest);
+				try {
+					keepAlive = handleInline(httpRequest, session);
+				} finally {
+					eventLoop.endInline();
+				}
+				if (!keepAlive) {
+					disconnectWhenFlushed();
+					return;
+				}
+				if (outputStream.hasPending()) { // socket is full, next responses are written by a worker
+					if (!park()) {
+						dispatch(null);
+					}
+					return;
+				}
+			} while (!park());
+		} catch (HttpException e) { // malformed request or limit exceeded
+			rejectRequest(e, session);
+			disconnectWhenFlushed();
+		} catch (Exception e) {
+			disconnect();
+		}
+	}
+	
+	private boolean hasCompleteRequest() {
+		inputStream.lock.lock();
+		try {
+			inputStream.resetScan();
+			return inputStream.hasCompleteRequest();
+		} finally {
+			inputStream.lock.unlock();
+		}
+	}
+
+	/**
+	 * Answer with the rejection response and close, it goes out after responses still queued
+	 */
+	private void reject() {
+		final byte[] response = httpServer.getRejectionResponse();
+		if (response != null) {
+			try {
+				if (session == null) { // nothing written yet
+					socketChannel.write(ByteBuffer.wrap(response)); // best effort, never blocks
+				} else {
+					final OutputStream os = session.getOutputStream();
+					os.write(response); // queued on the event loop, never blocks
+					os.flush();
+				}
+			} catch (IOException e) {
+				disconnect();
+				return;
+			}
+		}
+		disconnectWhenFlushed();
+	}
+
+	void onWritable() {
+		selectionKey.interestOps(selectionKey.interestOps() & ~SelectionKey.OP_WRITE);
+		try {
+			outputStream.signalWritable();
+		} catch (IOException e) {
+			disconnect();
+		}
+	}
+
+	void resumeReading() {
+		eventLoop.execute(() -> {
+			if (selectionKey.isValid()) {
+				selectionKey.interestOps(selectionKey.interestOps() | SelectionKey.OP_READ);
+			}
+		});
+	}
+
+	void registerWrite() {
+		eventLoop.execute(() -> {
+			if (selectionKey.isValid()) {
+				selectionKey.interestOps(selectionKey.interestOps() | SelectionKey.OP_WRITE);
+			}
+		});
+	}
+
+	/**
+	 * Expire connection if no request arrives within idle timeout
+	 */
+	void scheduleIdleTimeout() {
+		inputStream.lock.lock();
+		try {
+			cancelTimeout();
+			reading = false;
+			final int idleTimeout = httpServer.getIdleTimeout();
+			if (idleTimeout > 0) {
+				timeout = eventLoop.getTimerWheel().schedule(this::expire, idleTimeout);
+			}
+		} finally {
+			inputStream.lock.unlock();
+		}
+	}
+
+	/**
+	 * Expire connection if the request is not buffered within the header timeout, or the read timeout
+	 * when it is disabled, counted from its first byte
+	 */
+	private void scheduleReadTimeout() {
+		cancelTimeout();
+		reading = true;
+		final int headerTimeout = httpServer.getRequestLimits().getHeaderTimeout();
+		final int readTimeout = headerTimeout > 0 ? headerTimeout : httpServer.getSocketTimeout();
+		if (readTimeout > 0) {
+			timeout = eventLoop.getTimerWheel().schedule(this::expire, readTimeout);
+		}
+	}
+
+	private void cancelTimeout() {
+		if (timeout != null) {
+			timeout.cancel();
+			timeout = null;
+		}
+	}
+
+	private void expire() {
+		if (dispatched) {
+			return;
+		}
+		final NioOutputStream outputStream = this.outputStream;
+		if (outputStream != null && outputStream.hasPending()) {
+			scheduleIdleTimeout(); // client is still reading responses, the write timeout applies
+		} else {
+			if (reading && httpServer.getRequestLimits().getHeaderTimeout() > 0) {
+				httpServer.getRequestLimits().recordHeaderTimeout();
+			}
+			disconnect();
+		}
+	}
+	
+	/**
+	 * Close the connection once queued output reached the client, so the worker does not wait for it
+	 */
+	void disconnectWhenFlushed() {
+		final NioOutputStream outputStream = this.outputStream;
+		if (outputStream != null && outputStream.closeWhenDrained()) {
+			closing = true;
+		} else {
+			disconnect();
+		}
+	}
+
+	@Override
+	protected void close() throws IOException {
+		try {
+			socketChannel.close();
+		} finally {
+			eventLoop.onDisconnect(this);
+			inputStream.close();
+			final NioOutputStream outputStream = this.outputStream;
+			if (outputStream != null) {
+				outputStream.signalClosed();
+			}
+			inputStream.lock.lock();
+			try {
+				cancelTimeout();
+			} finally {
+				inputStream.lock.unlock();
+			}
+		}
+	}
+
+	void setSelectionKey(SelectionKey selectionKey) {
+		this.selectionKey = selectionKey;
+	}
+
+	/**
+	 * Return timeout of blocking reads and writes of handlers
+	 * @return timeout in milliseconds, 0 waits forever
+	 */
+	public int getSoTimeout() {
+		return soTimeout;
+	}
+
+	public SocketChannel getSocketChannel() {
+		return socketChannel;
+	}
+
+	public NioEventLoop getEventLoop() {
+		return eventLoop;
+	}
+
+}
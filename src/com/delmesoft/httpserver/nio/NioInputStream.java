@@ -0,0 +1,420 @@
+package com.delmesoft.httpserver.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.delmesoft.httpserver.HttpException;
+import com.delmesoft.httpserver.RequestLimits;
+import com.delmesoft.httpserver.utils.BufferPool;
+import com.delmesoft.httpserver.utils.DelimiterScanner;
+import com.delmesoft.httpserver.utils.RequestParser;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class NioInputStream extends InputStream implements ReadableByteChannel, RequestParser.Source {
+	
+	public static final int INITIAL_CAPACITY = 1024 << 2;
+	public static final int MAX_CAPACITY = 1024 << 6;
+	
+	static final int FULL = -2; // fill() result when the buffer can take no more bytes
+	
+	private static final byte[] CONTENT_LENGTH = { 'c', 'o', 'n', 't', 'e', 'n', 't', '-', 'l', 'e', 'n', 'g', 't', 'h', ':' };
+	private static final byte[] EXPECT = { 'e', 'x', 'p', 'e', 'c', 't', ':' };
+	private static final byte[] CONTINUE = { '1', '0', '0', '-', 'c', 'o', 'n', 't', 'i', 'n', 'u', 'e' };
+	
+	final ReentrantLock lock;
+	private final Condition readable;
+	
+	private final NioHttpClient httpClient;
+	
+	private ByteBuffer buffer; // pooled direct buffer, only held while request bytes are buffered
+	private int start, end;
+	private int scanIndex;
+	
+	private boolean eof;
+
+	public NioInputStream(NioHttpClient httpClient) {
+		this.httpClient = httpClient;
+		this.lock = new ReentrantLock();
+		this.readable = lock.newCondition();
+	}
+
+	/**
+	 * Read available bytes from channel, called from the event loop
+	 * @param channel source channel
+	 * @return number of bytes read, possibly 0, -1 at end of stream, FULL if buffer is full
+	 * @throws IOException
+	 */
+	int fill(ReadableByteChannel channel) throws IOException {
+		lock.lock();
+		try {
+			if (eof) {
+				return -1; // closed
+			}
+			if (buffer == null) {
+				buffer = BufferPool.DIRECT.acquire(INITIAL_CAPACITY);
+			} else if (end == buffer.capacity()) {
+				if (start > 0) { // compact
+					buffer.limit(end).position(start);
+					buffer.compact();
+					scanIndex -= start;
+					end -= start;
+					start = 0;
+				} else if (buffer.capacity() < MAX_CAPACITY) { // resize
+					buffer.limit(end).position(end);
+					buffer = BufferPool.DIRECT.grow(buffer, Math.min(buffer.capacity() << 1, MAX_CAPACITY));
+				} else {
+					return FULL;
+				}
+			}
+			buffer.limit(buffer.capacity()).position(end);
+			final int n = channel.read(buffer);
+			if (n < 0) {
+				eof = true;
+			} else {
+				end += n;
+			}
+			readable.signalAll();
+			return n;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Check if buffer holds a complete request head and, when announced
+	 * by Content-Length, its body
+	 * @return true if a complete request is buffered or buffer can not grow
+	 */
+	boolean hasRequest() {
+		return scan(false);
+	}
+	
+	/**
+	 * Check if request head and its Content-Length body are buffered, so it can be decoded without waiting
+	 * @return true if a complete request is buffered
+	 */
+	boolean hasCompleteRequest() {
+		return scan(true);
+	}
+	
+	private boolean scan(boolean complete) {
+		if (end - start == 0) {
+			return false;
+		}
+		if (end - start == MAX_CAPACITY) {
+			return !complete; // let the worker consume it
+		}
+		final DelimiterScanner scanner = DelimiterScanner.get();
+		int i = Math.max(scanIndex, start);
+		while ((i = scanner.indexOf(buffer, i, end, (byte) 10)) > -1) { // LF [CR] LF, as RequestParser accepts bare LF lines
+			int j = i + 1;
+			if (j < end && buffer.get(j) == 13) {
+				++j;
+			}
+			if (j == end) {
+				break; // checked again once more bytes arrive
+			}
+			if (buffer.get(j) == 10) {
+				final int headEnd = j + 1;
+				final long contentLength = contentLength(start, headEnd);
+				if (contentLength < 0 || headEnd + contentLength <= end) {
+					return true;
+				}
+				// a client expecting 100 Continue sends no body until it is answered
+				return !complete && (headEnd + contentLength - start > MAX_CAPACITY || expectsContinue(start, headEnd));
+			}
+			++i;
+		}
+		scanIndex = i < 0 ? end : i;
+		return !complete && exceedsLimits();
+	}
+	
+	/**
+	 * Check if an unterminated head is already past the request line or header size limit, so a worker
+	 * rejects it instead of waiting for the rest until the header timeout
+	 */
+	private boolean exceedsLimits() {
+		final RequestLimits limits = httpClient.getRequestLimits();
+		final int maxRequestLine = limits.getMaxRequestLineLength(), maxHeaderSize = limits.getMaxHeaderSize();
+		final int lf = DelimiterScanner.get().indexOf(buffer, start, end, (byte) 10);
+		if (lf < 0) {
+			return maxRequestLine > 0 && end - start > maxRequestLine + 2;
+		}
+		return maxHeaderSize > 0 && end - lf - 1 > maxHeaderSize + 2;
+	}
+
+	private long contentLength(int from, int to) {
+		int k = valueOf(CONTENT_LENGTH, from, to);
+		if (k < 0) {
+			return -1;
+		}
+		long result = 0;
+		for (; k < to; ++k) {
+			final byte b = buffer.get(k);
+			if (b >= '0' && b <= '9') {
+				result = result * 10 + (b - '0');
+			} else if (b != ' ') {
+				break;
+			}
+		}
+		return result;
+	}
+	
+	private boolean expectsContinue(int from, int to) {
+		int k = valueOf(EXPECT, from, to);
+		if (k < 0) {
+			return false;
+		}
+		while (k < to && buffer.get(k) == ' ') ++k;
+		int j = 0;
+		while (j < CONTINUE.length && k + j < to && (buffer.get(k + j) | 0x20) == CONTINUE[j]) ++j;
+		return j == CONTINUE.length;
+	}
+	
+	/**
+	 * Find value of a header in the buffered head, name is matched ignoring case
+	 * @param name lower case header name followed by ':'
+	 * @return index of first byte after ':', -1 if not found
+	 */
+	private int valueOf(byte[] name, int from, int to) {
+		for (int i = from; i < to; ++i) {
+			if (buffer.get(i) == 10 && i + 1 + name.length < to) { // line start
+				int j = 0;
+				while (j < name.length && (buffer.get(i + 1 + j) | 0x20) == name[j]) ++j;
+				if (j == name.length) {
+					return i + 1 + j;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Give buffer back to the pool if every buffered byte was consumed, called with lock held
+	 */
+	void releaseIfDrained() {
+		if (start == end && buffer != null) {
+			start = end = scanIndex = 0;
+			BufferPool.DIRECT.release(buffer); // not acquired here, so it goes to the shared queue the event loop polls
+			buffer = null;
+		}
+	}
+	
+	void resetScan() {
+		scanIndex = start;
+	}
+	
+	boolean isFull() {
+		return start == 0 && end == MAX_CAPACITY;
+	}
+
+	boolean isEof() {
+		return eof;
+	}
+
+	@Override
+	public int read() throws IOException {
+		lock.lock();
+		try {
+			if (!await()) {
+				return -1;
+			}
+			final boolean full = isFull();
+			final int b = buffer.get(start++) & 0xFF;
+			if (full) {
+				httpClient.resumeReading();
+			}
+			return b;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		lock.lock();
+		try {
+			if (!await()) {
+				return -1;
+			}
+			final boolean full = isFull();
+			final int n = Math.min(len, end - start);
+			buffer.get(start, b, off, n);
+			start += n;
+			if (full) {
+				httpClient.resumeReading();
+			}
+			return n;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Copy buffered bytes to a buffer, body sinks move bytes from the connection buffer without a heap copy
+	 */
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if (!dst.hasRemaining()) {
+			return 0;
+		}
+		lock.lock();
+		try {
+			if (!await()) {
+				return -1;
+			}
+			final boolean full = isFull();
+			final int n = Math.min(dst.remaining(), end - start);
+			dst.put(dst.position(), buffer, start, n);
+			dst.position(dst.position() + n);
+			start += n;
+			if (full) {
+				httpClient.resumeReading();
+			}
+			return n;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public boolean isOpen() {
+		lock.lock();
+		try {
+			return !eof || start < end;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean await() throws IOException {
+		if (start == end) {
+			start = end = scanIndex = 0;
+			final int timeout = httpClient.getSoTimeout();
+			long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+			while (start == end) {
+				if (eof) {
+					return false;
+				}
+				try {
+					if (timeout > 0) {
+						if (nanos <= 0) {
+							throw new SocketTimeoutException("Read timed out");
+						}
+						nanos = readable.awaitNanos(nanos);
+					} else {
+						readable.await();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException(e);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parse the request head straight from the connection buffer, partial heads are resumed as bytes arrive
+	 */
+	@Override
+	public boolean readRequest(RequestParser parser) throws IOException, HttpException {
+		lock.lock();
+		try {
+			while (true) {
+				if (!await()) {
+					return parser.end();
+				}
+				final boolean full = isFull();
+				buffer.limit(end).position(start);
+				final boolean complete;
+				try {
+					complete = parser.parse(buffer);
+				} finally {
+					start = buffer.position();
+				}
+				if (full) {
+					httpClient.resumeReading();
+				}
+				if (complete) {
+					return true;
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int available() throws IOException {
+		lock.lock();
+		try {
+			return end - start;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			eof = true;
+			start = end = scanIndex = 0;
+			if (buffer != null) {
+				release(buffer);
+				buffer = null;
+			}
+			readable.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	private void release(ByteBuffer buffer) {
+		final NioEventLoop eventLoop = httpClient.getEventLoop();
+		if (eventLoop.inEventLoop() || !eventLoop.isAlive()) {
+			BufferPool.DIRECT.release(buffer);
+		} else { // back to the cache of the thread acquiring connection buffers
+			eventLoop.execute(() -> BufferPool.DIRECT.release(buffer));
+		}
+	}
+
+}
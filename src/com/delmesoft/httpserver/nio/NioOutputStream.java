@@ -0,0 +1,309 @@
+package com.delmesoft.httpserver.nio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.delmesoft.httpserver.HttpServerImpl;
+import com.delmesoft.httpserver.utils.BufferPool;
+import com.delmesoft.httpserver.utils.TimerWheel.Timeout;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class NioOutputStream extends OutputStream {
+	
+	private static final ByteBuffer[] EMPTY = new ByteBuffer[0];
+	
+	private final ReentrantLock lock;
+	private final Condition writable;
+	
+	private final NioHttpClient httpClient;
+	private final HttpServerImpl httpServer;
+	
+	private ArrayDeque<ByteBuffer> queue; // output waiting for a slow client, null while nothing is pending, guarded by lock
+	private int queued; // bytes in queue, taken from the global outbound budget
+	private long lastProgress; // millis, last time the client took queued bytes
+	private Timeout writeTimeout;
+	
+	private boolean waiting;
+	private boolean closing; // disconnect once queue is drained
+	private boolean closed;
+
+	public NioOutputStream(NioHttpClient httpClient) {
+		this.httpClient = httpClient;
+		this.httpServer = httpClient.getEventLoop().getHttpServer();
+		this.lock = new ReentrantLock();
+		this.writable = lock.newCondition();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	/**
+	 * Write to channel, bytes the socket send buffer does not take are queued for the event loop up to
+	 * the connection and global outbound limits, so the writer returns without waiting for the client.
+	 * Above them the writer waits. Callers are expected to buffer, see PipelineOutputStream
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		final ByteBuffer src = ByteBuffer.wrap(b, off, len);
+		final boolean inEventLoop = httpClient.getEventLoop().inEventLoop(); // must never wait
+		lock.lock();
+		try {
+			while (true) {
+				if (closed || closing) {
+					throw new IOException("Connection closed");
+				}
+				if (queued == 0) {
+					httpClient.getSocketChannel().write(src);
+					if (!src.hasRemaining()) {
+						return;
+					}
+				}
+				offload(src, inEventLoop);
+				if (!src.hasRemaining()) {
+					return;
+				}
+				awaitWritable();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Queue as many bytes as the limits allow, called with lock held
+	 * @param force true to queue every byte regardless of limits
+	 */
+	private void offload(ByteBuffer src, boolean force) {
+		int n = src.remaining();
+		if (force) {
+			httpServer.reserveOutbound(n, true);
+		} else {
+			n = Math.min(n, httpServer.getMaxOutboundBuffer() - queued);
+			if (n <= 0 || !httpServer.reserveOutbound(n, false)) {
+				return;
+			}
+		}
+		if (queue == null) {
+			queue = new ArrayDeque<>();
+		}
+		if (queued == 0) {
+			lastProgress = System.currentTimeMillis();
+			scheduleWriteTimeout();
+			httpClient.registerWrite();
+		}
+		queued += n;
+		final int limit = src.limit();
+		final int end = src.position() + n;
+		while (src.position() < end) { // copied into pooled buffers, given back as the client takes them
+			final ByteBuffer buffer = BufferPool.DIRECT.acquire(Math.min(end - src.position(), BufferPool.MAX_SIZE));
+			src.limit(Math.min(end, src.position() + buffer.remaining()));
+			buffer.put(src).flip();
+			queue.add(buffer);
+		}
+		src.limit(limit);
+	}
+	
+	/**
+	 * Check if written bytes are still queued for the client
+	 * @return true if output is pending
+	 */
+	boolean hasPending() {
+		lock.lock();
+		try {
+			return queued > 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void awaitWritable() throws IOException {
+		try {
+			waiting = true;
+			httpClient.registerWrite();
+			final int timeout = httpClient.getSoTimeout();
+			long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+			while (waiting) {
+				if (closed) {
+					throw new IOException("Connection closed");
+				}
+				if (timeout > 0) {
+					if (nanos <= 0) {
+						throw new SocketTimeoutException("Write timed out");
+					}
+					nanos = writable.awaitNanos(nanos);
+				} else {
+					writable.await();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} finally {
+			waiting = false;
+		}
+	}
+
+	/**
+	 * Write queued bytes and wake up writer, called from the event loop
+	 * @throws IOException Connection error
+	 */
+	void signalWritable() throws IOException {
+		boolean drained = false;
+		lock.lock();
+		try {
+			if (queued > 0) {
+				final long n = httpClient.getSocketChannel().write(queue.toArray(EMPTY));
+				while (!queue.isEmpty() && !queue.peek().hasRemaining()) {
+					BufferPool.DIRECT.release(queue.poll());
+				}
+				if (n > 0) {
+					queued -= n;
+					httpServer.releaseOutbound((int) n);
+					lastProgress = System.currentTimeMillis();
+				}
+				if (queued > 0) {
+					httpClient.registerWrite();
+					if (n == 0) {
+						return;
+					}
+				} else {
+					cancelWriteTimeout();
+					queue = null; // allocated again by the next slow write
+					drained = closing;
+				}
+			}
+			waiting = false;
+			writable.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		if (drained) {
+			httpClient.disconnect();
+		}
+	}
+	
+	/**
+	 * Close the connection once queued bytes reached the client
+	 * @return false if nothing is queued and connection may be closed now
+	 */
+	boolean closeWhenDrained() {
+		lock.lock();
+		try {
+			if (closed || queued == 0) {
+				return false;
+			}
+			closing = true;
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	private void scheduleWriteTimeout() {
+		final int timeout = httpServer.getWriteTimeout();
+		if (timeout > 0 && writeTimeout == null) {
+			writeTimeout = httpClient.getEventLoop().getTimerWheel().schedule(this::checkWriteTimeout, timeout);
+		}
+	}
+	
+	private void cancelWriteTimeout() {
+		if (writeTimeout != null) {
+			writeTimeout.cancel();
+			writeTimeout = null;
+		}
+	}
+	
+	/**
+	 * Close the connection if the client took none of the queued bytes within the write timeout,
+	 * called from the event loop
+	 */
+	private void checkWriteTimeout() {
+		lock.lock();
+		try {
+			writeTimeout = null;
+			if (closed || queued == 0) {
+				return;
+			}
+			final long elapsed = System.currentTimeMillis() - lastProgress;
+			final int timeout = httpServer.getWriteTimeout();
+			if (timeout <= 0 || elapsed < timeout) { // client is reading, check again later
+				if (timeout > 0) {
+					writeTimeout = httpClient.getEventLoop().getTimerWheel().schedule(this::checkWriteTimeout, timeout - elapsed);
+				}
+				return;
+			}
+		} finally {
+			lock.unlock();
+		}
+		httpServer.recordWriteTimeout();
+		httpClient.disconnect();
+	}
+
+	/**
+	 * Drop queued bytes and wake up writer on disconnect
+	 */
+	void signalClosed() {
+		lock.lock();
+		try {
+			closed = true;
+			httpServer.releaseOutbound(queued);
+			if (queue != null) {
+				ByteBuffer buffer;
+				while ((buffer = queue.poll()) != null) {
+					BufferPool.DIRECT.release(buffer);
+				}
+				queue = null;
+			}
+			queued = 0;
+			cancelWriteTimeout();
+			writable.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Close the connection once queued bytes reached the client
+	 */
+	@Override
+	public void close() throws IOException {
+		httpClient.disconnectWhenFlushed();
+	}
+
+}
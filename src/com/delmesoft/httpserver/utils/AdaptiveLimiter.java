@@ -0,0 +1,338 @@
+package com.delmesoft.httpserver.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class AdaptiveLimiter {
+
+	public static final int DEFAULT_INITIAL_LIMIT = 20;
+	public static final int DEFAULT_MIN_LIMIT = 4;
+	public static final int DEFAULT_MAX_LIMIT = 1_000;
+	public static final int DEFAULT_MAX_QUEUE_TIME = 50; // ms
+
+	private final ReentrantLock lock;
+	private final Condition available;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private long maxQueueNanos;
+
+	private double rttTolerance = 1.5;  // latency increase tolerated before the limit shrinks
+	private double smoothing = 0.2;     // weight of a new estimate
+	private int longWindow = 600;       // windows averaged by the no-load RTT
+	private int windowSize = 10;        // samples per limit update
+
+	private double limit;    // guarded by lock
+	private int inFlight;    // guarded by lock
+	private int queued;      // guarded by lock
+
+	private double longRtt;  // nanos, guarded by lock
+	private double shortRtt; // nanos, guarded by lock
+	private long windowSum;
+	private int windowCount;
+	private int windowMaxInFlight;
+
+	private final LongAdder acceptedCount;
+	private final LongAdder rejectedCount;
+
+	public AdaptiveLimiter() {
+		this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_MAX_QUEUE_TIME);
+	}
+
+	/**
+	 * Create a gradient concurrency limiter. The limit grows while handler latency stays close to the
+	 * latency measured without load and shrinks as requests start queuing behind each other
+	 * @param initialLimit starting number of concurrent requests
+	 * @param minLimit lowest limit
+	 * @param maxLimit highest limit
+	 * @param maxQueueTime milliseconds a request may wait for a slot before being rejected, 0 rejects at once
+	 */
+	public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueueTime) {
+		this.lock = new ReentrantLock();
+		this.available = lock.newCondition();
+		this.minLimit = Math.max(1, minLimit);
+		this.maxLimit = Math.max(this.minLimit, maxLimit);
+		this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+		this.maxQueueNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueTime);
+		this.acceptedCount = new LongAdder();
+		this.rejectedCount = new LongAdder();
+	}
+
+	/**
+	 * Take a slot, waiting up to max queue time while the limit is reached
+	 * @return true if request may proceed, it must then call release()
+	 */
+	public boolean acquire() {
+		lock.lock();
+		try {
+			if (inFlight >= (int) limit) {
+				long nanos = maxQueueNanos;
+				++queued;
+				try {
+					while (inFlight >= (int) limit) {
+						if (nanos <= 0) {
+							rejectedCount.increment();
+							return false;
+						}
+						nanos = available.awaitNanos(nanos);
+					}
+				} finally {
+					--queued;
+				}
+			}
+			++inFlight;
+			if (inFlight > windowMaxInFlight) {
+				windowMaxInFlight = inFlight;
+			}
+			acceptedCount.increment();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			rejectedCount.increment();
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Give back a slot taken by acquire() and feed the request latency to the limit
+	 * @param rttNanos time the request held its slot
+	 */
+	public void release(long rttNanos) {
+		lock.lock();
+		try {
+			--inFlight;
+			windowSum += rttNanos;
+			if (++windowCount >= windowSize) {
+				update((double) windowSum / windowCount);
+				windowSum = windowCount = 0;
+				windowMaxInFlight = inFlight;
+			}
+			if (queued > 0) {
+				available.signalAll(); // limit may have grown by more than one slot
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void update(double rtt) {
+		shortRtt = rtt = Math.max(1, rtt); // a window of instant requests must not zero the ratios below
+		if (longRtt == 0 || rtt < longRtt) { // follow latency down at once, up only slowly
+			longRtt = rtt;
+		} else {
+			longRtt += (rtt - longRtt) / longWindow;
+		}
+		if (longRtt / shortRtt > 2) { // load went away, forget the latency measured under it faster
+			longRtt *= 0.95;
+		}
+		if (windowMaxInFlight < limit / 2) {
+			return; // application limited, latency says nothing about a higher limit
+		}
+		final double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+		final double queueSize = Math.sqrt(limit); // headroom allowed to probe for more concurrency
+		final double estimate = limit * gradient + queueSize;
+		final double next = limit * (1 - smoothing) + estimate * smoothing;
+		if (Double.isFinite(next)) {
+			limit = Math.min(maxLimit, Math.max(minLimit, next));
+		}
+	}
+
+	public int getLimit() {
+		lock.lock();
+		try {
+			return (int) limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getInFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getQueued() {
+		lock.lock();
+		try {
+			return queued;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return long-term average latency, the reference for latency without queuing
+	 * @return RTT in milliseconds
+	 */
+	public double getLongRtt() {
+		lock.lock();
+		try {
+			return longRtt / 1e6;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return average latency of the last sample window
+	 * @return RTT in milliseconds
+	 */
+	public double getShortRtt() {
+		lock.lock();
+		try {
+			return shortRtt / 1e6;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getAcceptedCount() {
+		return acceptedCount.sum();
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	/**
+	 * Set tolerated ratio between current and no-load latency before the limit shrinks
+	 * @param rttTolerance ratio, default 1.5
+	 * @return this limiter
+	 */
+	public AdaptiveLimiter setRttTolerance(double rttTolerance) {
+		lock.lock();
+		try {
+			this.rttTolerance = rttTolerance;
+			return this;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Set weight of each new limit estimate
+	 * @param smoothing between 0 and 1, default 0.2
+	 * @return this limiter
+	 */
+	public AdaptiveLimiter setSmoothing(double smoothing) {
+		lock.lock();
+		try {
+			this.smoothing = smoothing;
+			return this;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Set number of sample windows averaged by the no-load latency
+	 * @param longWindow windows, default 600
+	 * @return this limiter
+	 */
+	public AdaptiveLimiter setLongWindow(int longWindow) {
+		lock.lock();
+		try {
+			this.longWindow = Math.max(1, longWindow);
+			return this;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Set number of requests averaged before the limit is updated
+	 * @param windowSize requests, default 10
+	 * @return this limiter
+	 */
+	public AdaptiveLimiter setWindowSize(int windowSize) {
+		lock.lock();
+		try {
+			this.windowSize = Math.max(1, windowSize);
+			return this;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Set time a request may wait for a slot
+	 * @param maxQueueTime milliseconds, 0 rejects at once
+	 * @return this limiter
+	 */
+	public AdaptiveLimiter setMaxQueueTime(int maxQueueTime) {
+		lock.lock();
+		try {
+			this.maxQueueNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueTime);
+			return this;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("AdaptiveLimiter [limit=");
+		builder.append(getLimit());
+		builder.append(", inFlight=");
+		builder.append(getInFlight());
+		builder.append(", queued=");
+		builder.append(getQueued());
+		builder.append(", longRtt=");
+		builder.append(String.format("%.2f", getLongRtt()));
+		builder.append(", shortRtt=");
+		builder.append(String.format("%.2f", getShortRtt()));
+		builder.append(", acceptedCount=");
+		builder.append(getAcceptedCount());
+		builder.append(", rejectedCount=");
+		builder.append(getRejectedCount());
+		builder.append("]");
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,195 @@
+package com.delmesoft.httpserver.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public abstract class BodyInputStream extends FilterInputStream implements ReadableByteChannel {
+	
+	private static final int SKIP_SIZE = 1024 << 3;
+	
+	private boolean failed;
+	
+	protected BodyInputStream(InputStream in) {
+		super(in);
+	}
+	
+	/**
+	 * Check if the connection failed or was closed by the client while the body was read
+	 * @return true if the client is gone
+	 */
+	public boolean isFailed() {
+		return failed;
+	}
+	
+	/**
+	 * Record a connection error met while reading the body
+	 * @param e connection error
+	 * @return the error, to be thrown
+	 */
+	protected IOException failed(IOException e) {
+		failed = true;
+		return e;
+	}
+	
+	/**
+	 * Check if the whole body was read, so next request starts at the stream position
+	 * @return true once the end of the body was reached
+	 */
+	public abstract boolean isFinished();
+	
+	/**
+	 * Read body bytes into a buffer, they are copied straight from the connection buffer when the
+	 * connection stream is a channel
+	 * @param dst destination buffer
+	 * @return number of bytes read, -1 at the end of the body
+	 * @throws IOException Connection error
+	 */
+	@Override
+	public abstract int read(ByteBuffer dst) throws IOException;
+	
+	/**
+	 * Read up to a number of bytes of the connection stream into a buffer
+	 * @param dst destination buffer
+	 * @param max maximum number of bytes
+	 * @return number of bytes read, -1 at end of stream
+	 * @throws IOException Connection error
+	 */
+	protected int readSource(ByteBuffer dst, long max) throws IOException {
+		final int len = (int) Math.min(dst.remaining(), max);
+		if (in instanceof ReadableByteChannel) {
+			final int limit = dst.limit();
+			dst.limit(dst.position() + len);
+			try {
+				return ((ReadableByteChannel) in).read(dst);
+			} finally {
+				dst.limit(limit);
+			}
+		}
+		if (dst.hasArray()) {
+			final int count = in.read(dst.array(), dst.arrayOffset() + dst.position(), len);
+			if (count > 0) {
+				dst.position(dst.position() + count);
+			}
+			return count;
+		}
+		final ByteBuffer pooled = BufferPool.HEAP.acquire(Math.min(len, SKIP_SIZE));
+		try {
+			final int count = in.read(pooled.array(), 0, Math.min(len, pooled.capacity()));
+			if (count > 0) {
+				dst.put(pooled.array(), 0, count);
+			}
+			return count;
+		} finally {
+			BufferPool.HEAP.release(pooled);
+		}
+	}
+	
+	@Override
+	public int read() throws IOException {
+		final byte[] b = new byte[1];
+		return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+	}
+	
+	@Override
+	public long skip(long n) throws IOException {
+		final byte[] b = new byte[(int) Math.min(n, SKIP_SIZE)];
+		long skipped = 0;
+		int count;
+		while (skipped < n && (count = read(b, 0, (int) Math.min(n - skipped, b.length))) > 0) {
+			skipped += count;
+		}
+		return skipped;
+	}
+	
+	/**
+	 * Read and drop what is left of the body, giving up once more than a limit of bytes would have to be read
+	 * @param limit maximum number of bytes to drop
+	 * @return true if the body was read to its end
+	 * @throws IOException Connection error
+	 */
+	public boolean discard(long limit) throws IOException {
+		while (!isFinished()) {
+			if (limit <= 0) {
+				return false;
+			}
+			final long skipped = skip(limit);
+			if (skipped == 0 && !isFinished()) { // end of stream
+				return false;
+			}
+			limit -= skipped;
+		}
+		return true;
+	}
+	
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+	
+	@Override
+	public void mark(int readlimit) {
+	}
+	
+	@Override
+	public void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+	
+	/**
+	 * The connection stays open, unread body bytes are discarded by the server before next request
+	 */
+	@Override
+	public void close() {
+	}
+	
+	@Override
+	public boolean isOpen() {
+		return true;
+	}
+	
+	/**
+	 * Thrown when a body grows past the content limit, answered with 413
+	 */
+	public static class ContentTooLargeException extends IOException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		public ContentTooLargeException(String message) {
+			super(message);
+		}
+		
+	}
+	
+}
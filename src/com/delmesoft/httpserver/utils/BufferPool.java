@@ -0,0 +1,379 @@
+package com.delmesoft.httpserver.utils;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+import com.delmesoft.httpserver.HttpServer;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class BufferPool {
+
+	public static final int MIN_SIZE = 1 << 9;  // 512 B
+	public static final int MAX_SIZE = 1 << 16; // 64 KB
+
+	public static final int DEFAULT_THREAD_CACHE_SIZE = 1 << 17;  // bytes per size class and thread
+	public static final int DEFAULT_GLOBAL_SIZE       = 1 << 22;  // bytes per size class
+
+	private static final int CLASS_COUNT = Integer.numberOfTrailingZeros(MAX_SIZE) - Integer.numberOfTrailingZeros(MIN_SIZE) + 1;
+
+	/** Direct buffers for channel I/O */
+	public static final BufferPool DIRECT = new BufferPool(true);
+	/** Heap buffers for stream I/O, backed by an accessible array */
+	public static final BufferPool HEAP = new BufferPool(false);
+
+	private final boolean direct;
+	private final int threadCacheSize;
+
+	private final ThreadLocal<ThreadCache> threadCaches;
+	private final ConcurrentLinkedQueue<ByteBuffer>[] globalQueues;
+	private final AtomicInteger[] globalCounts;
+	private final int[] globalLimits;
+
+	private final LongAdder hitCount;
+	private final LongAdder missCount;
+	private final LongAdder outstanding;
+	private final LongAdder leakCount;
+
+	private volatile boolean leakDetection;
+	private final ReferenceQueue<ByteBuffer> leakQueue;
+	private final Map<Integer, List<Tracker>> trackers; // identity hash code -> live trackers, guarded by itself
+
+	public BufferPool(boolean direct) {
+		this(direct, DEFAULT_THREAD_CACHE_SIZE, DEFAULT_GLOBAL_SIZE);
+	}
+
+	/**
+	 * Create a size-classed buffer pool, capacities are powers of two from MIN_SIZE to MAX_SIZE
+	 * @param direct allocate direct buffers
+	 * @param threadCacheSize bytes cached by each platform thread per size class, 0 disables thread caches
+	 * @param globalSize bytes kept by the shared fallback per size class
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public BufferPool(boolean direct, int threadCacheSize, int globalSize) {
+		this.direct = direct;
+		this.threadCacheSize = threadCacheSize;
+		this.threadCaches = ThreadLocal.withInitial(ThreadCache::new);
+		this.globalQueues = new ConcurrentLinkedQueue[CLASS_COUNT];
+		this.globalCounts = new AtomicInteger[CLASS_COUNT];
+		this.globalLimits = new int[CLASS_COUNT];
+		for (int i = 0; i < CLASS_COUNT; ++i) {
+			globalQueues[i] = new ConcurrentLinkedQueue<>();
+			globalCounts[i] = new AtomicInteger();
+			globalLimits[i] = globalSize / (MIN_SIZE << i);
+		}
+		this.hitCount = new LongAdder();
+		this.missCount = new LongAdder();
+		this.outstanding = new LongAdder();
+		this.leakCount = new LongAdder();
+		this.leakQueue = new ReferenceQueue<>();
+		this.trackers = new HashMap<>();
+	}
+
+	/**
+	 * Take a cleared buffer of at least the given capacity, it must be given back with release()
+	 * @param capacity minimum capacity
+	 * @return buffer, its capacity is the size class holding the requested capacity
+	 */
+	public ByteBuffer acquire(int capacity) {
+		ByteBuffer buffer = null;
+		final int index = indexOf(capacity);
+		if (index < CLASS_COUNT) {
+			final ThreadCache cache = threadCache();
+			if (cache != null) {
+				buffer = cache.poll(index);
+				cache.acquired(index, cacheLimit(index));
+			}
+			if (buffer == null && (buffer = globalQueues[index].poll()) != null) {
+				globalCounts[index].decrementAndGet();
+			}
+			capacity = MIN_SIZE << index;
+		}
+		if (buffer == null) {
+			missCount.increment();
+			buffer = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+		} else {
+			hitCount.increment();
+		}
+		outstanding.increment();
+		if (leakDetection) {
+			track(buffer);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Give a buffer back to the pool, it must not be used afterwards. It is cached by the calling thread
+	 * only in place of one the thread acquired, buffers released on behalf of another thread, such as
+	 * connection buffers of an event loop released by a worker, go to the shared queue
+	 * @param buffer buffer obtained from acquire(), null is ignored
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer == null) {
+			return;
+		}
+		outstanding.decrement();
+		if (leakDetection) {
+			untrack(buffer);
+		}
+		final int capacity = buffer.capacity();
+		final int index = indexOf(capacity);
+		if (index >= CLASS_COUNT || capacity != MIN_SIZE << index || buffer.isDirect() != direct) {
+			return; // not pooled
+		}
+		buffer.clear();
+		final ThreadCache cache = threadCache();
+		if (cache != null && cache.offer(index, buffer, cacheLimit(index))) {
+			return;
+		}
+		if (globalCounts[index].incrementAndGet() <= globalLimits[index]) {
+			globalQueues[index].offer(buffer);
+		} else {
+			globalCounts[index].decrementAndGet(); // full, left to the garbage collector
+		}
+	}
+
+	/**
+	 * Take a buffer of at least the given capacity holding the bytes written to a pooled one,
+	 * which is released
+	 * @param buffer buffer to grow, in write mode
+	 * @param capacity minimum capacity
+	 * @return new buffer in write mode
+	 */
+	public ByteBuffer grow(ByteBuffer buffer, int capacity) {
+		final ByteBuffer result = acquire(capacity);
+		buffer.flip();
+		result.put(buffer);
+		release(buffer);
+		return result;
+	}
+
+	private ThreadCache threadCache() {
+		if (threadCacheSize <= 0 || VirtualThreads.isVirtual(Thread.currentThread())) {
+			return null; // one cache per virtual thread would never be reused
+		}
+		return threadCaches.get();
+	}
+	
+	private int cacheLimit(int index) {
+		return Math.max(1, threadCacheSize / (MIN_SIZE << index));
+	}
+
+	private static int indexOf(int capacity) {
+		if (capacity <= MIN_SIZE) {
+			return 0;
+		}
+		return 32 - Integer.numberOfLeadingZeros(capacity - 1) - Integer.numberOfTrailingZeros(MIN_SIZE);
+	}
+
+	private void track(ByteBuffer buffer) {
+		final Tracker tracker = new Tracker(buffer, leakQueue);
+		synchronized (trackers) {
+			trackers.computeIfAbsent(System.identityHashCode(buffer), k -> new ArrayList<>(1)).add(tracker);
+		}
+		pollLeaks();
+	}
+
+	private void untrack(ByteBuffer buffer) {
+		final Integer key = System.identityHashCode(buffer);
+		synchronized (trackers) {
+			final List<Tracker> list = trackers.get(key);
+			if (list != null) {
+				for (int i = 0; i < list.size(); ++i) {
+					final Tracker tracker = list.get(i);
+					if (tracker.refersTo(buffer)) {
+						tracker.clear();
+						list.remove(i);
+						break;
+					}
+				}
+				if (list.isEmpty()) {
+					trackers.remove(key);
+				}
+			}
+		}
+	}
+
+	private void pollLeaks() {
+		Reference<? extends ByteBuffer> reference;
+		while ((reference = leakQueue.poll()) != null) { // collected without being released
+			final Tracker tracker = (Tracker) reference;
+			synchronized (trackers) {
+				final List<Tracker> list = trackers.get(tracker.key);
+				if (list == null || !list.remove(tracker)) {
+					continue;
+				}
+				if (list.isEmpty()) {
+					trackers.remove(tracker.key);
+				}
+			}
+			leakCount.increment();
+			outstanding.decrement();
+			HttpServer.log.log(Level.WARNING, "Buffer collected without being released to the pool", tracker.origin);
+		}
+	}
+
+	/**
+	 * Record where buffers are acquired and report those collected without being released,
+	 * meant for debugging as it slows down acquire and release
+	 * @param leakDetection true to enable
+	 */
+	public void setLeakDetection(boolean leakDetection) {
+		this.leakDetection = leakDetection;
+	}
+
+	public boolean isLeakDetection() {
+		return leakDetection;
+	}
+
+	public boolean isDirect() {
+		return direct;
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * Return ratio of acquisitions served without allocating
+	 * @return hit rate between 0 and 1
+	 */
+	public double getHitRate() {
+		final long hits = hitCount.sum();
+		final long total = hits + missCount.sum();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * Return number of buffers acquired and not released yet
+	 * @return outstanding buffers
+	 */
+	public long getOutstanding() {
+		return outstanding.sum();
+	}
+
+	/**
+	 * Return number of buffers detected as collected without being released, see setLeakDetection
+	 * @return leak count
+	 */
+	public long getLeakCount() {
+		if (leakDetection) {
+			pollLeaks();
+		}
+		return leakCount.sum();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("BufferPool [direct=");
+		builder.append(direct);
+		builder.append(", hitRate=");
+		builder.append(String.format("%.3f", getHitRate()));
+		builder.append(", outstanding=");
+		builder.append(getOutstanding());
+		builder.append(", leakCount=");
+		builder.append(leakCount.sum());
+		builder.append("]");
+		return builder.toString();
+	}
+
+	private static class ThreadCache {
+		
+		final ArrayDeque<ByteBuffer>[] deques;
+		final int[] acquired; // buffers taken by this thread and not given back by it, up to the cache limit
+		
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		ThreadCache() {
+			deques = new ArrayDeque[CLASS_COUNT];
+			acquired = new int[CLASS_COUNT];
+		}
+		
+		ByteBuffer poll(int index) {
+			final ArrayDeque<ByteBuffer> deque = deques[index];
+			return deque != null ? deque.pollLast() : null;
+		}
+		
+		void acquired(int index, int limit) {
+			if (acquired[index] < limit) {
+				++acquired[index];
+			}
+		}
+		
+		/**
+		 * Cache a buffer in place of one this thread acquired
+		 * @return false if the buffer must go to the shared queue
+		 */
+		boolean offer(int index, ByteBuffer buffer, int limit) {
+			if (acquired[index] == 0) {
+				return false; // released on behalf of another thread
+			}
+			--acquired[index];
+			ArrayDeque<ByteBuffer> deque = deques[index];
+			if (deque == null) {
+				deques[index] = deque = new ArrayDeque<>();
+			} else if (deque.size() >= limit) {
+				return false;
+			}
+			deque.addLast(buffer);
+			return true;
+		}
+		
+	}
+
+	private static class Tracker extends PhantomReference<ByteBuffer> {
+
+		final Integer key;
+		final Throwable origin;
+
+		Tracker(ByteBuffer buffer, ReferenceQueue<ByteBuffer> queue) {
+			super(buffer, queue);
+			this.key = System.identityHashCode(buffer);
+			this.origin = new Throwable("Buffer acquired at");
+		}
+
+	}
+
+}
@@ -0,0 +1,211 @@
+package com.delmesoft.httpserver.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import com.delmesoft.httpserver.RequestLimits;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class ChunkedInputStream extends BodyInputStream {
+	
+	public static final int MAX_LINE_LENGTH = 1024; // chunk size line or trailer field
+	
+	private static final int SIZE = 0, DATA = 1, DATA_END = 2, TRAILER = 3, DONE = 4, TOO_LARGE = 5;
+	
+	private int state;
+	private long remaining; // bytes left in current chunk
+	
+	private final RequestLimits limits;
+	private long length; // decoded bytes
+	
+	public ChunkedInputStream(InputStream in) {
+		this(in, null);
+	}
+	
+	/**
+	 * Create a stream failing once the body grows past the content limit
+	 * @param in connection stream
+	 * @param limits request limits, null for none
+	 */
+	public ChunkedInputStream(InputStream in, RequestLimits limits) {
+		super(in);
+		this.limits = limits;
+	}
+	
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (!nextData()) {
+			return -1;
+		}
+		if (len == 0) {
+			return 0;
+		}
+		try {
+			return consumed(in.read(b, off, (int) Math.min(len, remaining)));
+		} catch (IOException e) {
+			throw failed(e);
+		}
+	}
+	
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if (!nextData()) {
+			return -1;
+		}
+		if (!dst.hasRemaining()) {
+			return 0;
+		}
+		try {
+			return consumed(readSource(dst, remaining));
+		} catch (IOException e) {
+			throw failed(e);
+		}
+	}
+	
+	/**
+	 * Read chunk size lines and trailer until chunk data can be read
+	 * @return false at the end of the body
+	 */
+	private boolean nextData() throws IOException {
+		while (state != DATA) {
+			switch (state) {
+			case SIZE:
+				remaining = readSize();
+				length += remaining;
+				if (limits != null && limits.getMaxContentLength() > 0 && length > limits.getMaxContentLength()) {
+					limits.recordContentTooLarge();
+					state = TOO_LARGE;
+					break;
+				}
+				state = remaining > 0 ? DATA : TRAILER;
+				break;
+			case DATA_END:
+				if (skipLine() != 0) {
+					throw new IOException("Malformed chunk, CRLF expected after data");
+				}
+				state = SIZE;
+				break;
+			case TRAILER:
+				while (skipLine() > 0); // trailer fields are ignored
+				state = DONE;
+				break;
+			case TOO_LARGE: // the rest is never read, the connection is closed
+				throw new ContentTooLargeException("Request body too large");
+			default:
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private int consumed(int count) throws EOFException {
+		if (count < 0) {
+			throw new EOFException("Connection closed within chunk");
+		}
+		if ((remaining -= count) == 0) {
+			state = DATA_END;
+		}
+		return count;
+	}
+	
+	/**
+	 * Parse chunk size line, extensions after ';' are ignored
+	 */
+	private long readSize() throws IOException {
+		long size = 0;
+		int b, digits = 0, length = 0;
+		while ((b = next()) != 10) {
+			if (++length > MAX_LINE_LENGTH) {
+				throw new IOException("Chunk size line too long");
+			}
+			final int digit = Character.digit(b, 16);
+			if (digit < 0) {
+				if (digits > 0) { // extension, white space or CR
+					while ((b = next()) != 10) {
+						if (++length > MAX_LINE_LENGTH) {
+							throw new IOException("Chunk size line too long");
+						}
+					}
+					return size;
+				}
+				throw new IOException("Malformed chunk size");
+			}
+			if (++digits > 15) { // fits a long
+				throw new IOException("Chunk size too large");
+			}
+			size = (size << 4) | digit;
+		}
+		if (digits == 0) {
+			throw new IOException("Malformed chunk size");
+		}
+		return size;
+	}
+	
+	/**
+	 * Skip a line
+	 * @return line length without CRLF
+	 */
+	private int skipLine() throws IOException {
+		int b, length = 0;
+		while ((b = next()) != 10) {
+			if (b != 13 && ++length > MAX_LINE_LENGTH) {
+				throw new IOException("Trailer line too long");
+			}
+		}
+		return length;
+	}
+	
+	private int next() throws IOException {
+		final int b;
+		try {
+			b = in.read();
+		} catch (IOException e) {
+			throw failed(e);
+		}
+		if (b < 0) {
+			throw failed(new EOFException("Connection closed within chunked body"));
+		}
+		return b;
+	}
+	
+	@Override
+	public int available() throws IOException {
+		return state == DATA ? (int) Math.min(in.available(), remaining) : 0;
+	}
+	
+	@Override
+	public boolean isFinished() {
+		return state == DONE;
+	}
+	
+}
@@ -0,0 +1,107 @@
+package com.delmesoft.httpserver.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class ContentInputStream extends BodyInputStream {
+	
+	private long remaining;
+	
+	/**
+	 * Create a stream ending after a number of bytes of the connection stream
+	 * @param in connection stream
+	 * @param length Content-Length
+	 */
+	public ContentInputStream(InputStream in, long length) {
+		super(in);
+		this.remaining = length;
+	}
+	
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (remaining <= 0) {
+			return -1;
+		}
+		if (len == 0) {
+			return 0;
+		}
+		try {
+			return consumed(in.read(b, off, (int) Math.min(len, remaining)));
+		} catch (IOException e) {
+			throw failed(e);
+		}
+	}
+	
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if (remaining <= 0) {
+			return -1;
+		}
+		if (!dst.hasRemaining()) {
+			return 0;
+		}
+		try {
+			return consumed(readSource(dst, remaining));
+		} catch (IOException e) {
+			throw failed(e);
+		}
+	}
+	
+	private int consumed(int count) throws EOFException {
+		if (count < 0) {
+			throw new EOFException("Connection closed within request body");
+		}
+		remaining -= count;
+		return count;
+	}
+	
+	@Override
+	public int available() throws IOException {
+		return (int) Math.min(in.available(), remaining);
+	}
+	
+	@Override
+	public boolean isFinished() {
+		return remaining <= 0;
+	}
+	
+	/**
+	 * Return number of body bytes not read yet
+	 * @return remaining bytes
+	 */
+	public long getRemaining() {
+		return remaining;
+	}
+	
+}
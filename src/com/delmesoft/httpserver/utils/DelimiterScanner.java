@@ -0,0 +1,189 @@
+package com.delmesoft.httpserver.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public abstract class DelimiterScanner {
+	
+	/** Class loaded when the jdk.incubator.vector module is present, compiled with --add-modules jdk.incubator.vector */
+	private static final String VECTOR_CLASS = "com.delmesoft.httpserver.utils.VectorDelimiterScanner";
+	
+	/** One byte per step, baseline for benchmarks */
+	public static final DelimiterScanner SCALAR = new Scalar();
+	/** Eight bytes per step in a long word */
+	public static final DelimiterScanner SWAR = new Swar();
+	/** Vector API scanner, null when the incubator module was not added to the VM */
+	public static final DelimiterScanner VECTOR = loadVector();
+	
+	private static final DelimiterScanner INSTANCE = VECTOR != null && !Boolean.getBoolean("httpserver.novector") ? VECTOR : SWAR;
+	
+	/**
+	 * Return the fastest scanner available, the Vector API one when the VM runs with
+	 * --add-modules jdk.incubator.vector and SWAR otherwise. -Dhttpserver.novector=true forces SWAR
+	 * @return shared scanner
+	 */
+	public static DelimiterScanner get() {
+		return INSTANCE;
+	}
+	
+	private static DelimiterScanner loadVector() {
+		if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			return null;
+		}
+		try {
+			return (DelimiterScanner) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+		} catch (Throwable e) { // class not compiled in or module unusable
+			return null;
+		}
+	}
+	
+	/**
+	 * Find first occurrence of a byte
+	 * @param b bytes
+	 * @param from first index, inclusive
+	 * @param to last index, exclusive
+	 * @param value byte to find
+	 * @return index of the byte, -1 if not found
+	 */
+	public abstract int indexOf(byte[] b, int from, int to, byte value);
+	
+	/**
+	 * Find first occurrence of a byte between absolute buffer positions, heap or direct
+	 * @return index of the byte, -1 if not found
+	 */
+	public abstract int indexOf(ByteBuffer buffer, int from, int to, byte value);
+	
+	public abstract String getName();
+	
+	@Override
+	public String toString() {
+		return getName();
+	}
+	
+	private static class Scalar extends DelimiterScanner {
+		
+		@Override
+		public int indexOf(byte[] b, int from, int to, byte value) {
+			for (int i = from; i < to; ++i) {
+				if (b[i] == value) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		
+		@Override
+		public int indexOf(ByteBuffer buffer, int from, int to, byte value) {
+			for (int i = from; i < to; ++i) {
+				if (buffer.get(i) == value) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		
+		@Override
+		public String getName() {
+			return "scalar";
+		}
+		
+	}
+	
+	private static class Swar extends DelimiterScanner {
+		
+		private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+		
+		private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+		private static final long ONES = 0x0101010101010101L;
+		
+		/**
+		 * Return a word whose bytes equal to the pattern byte have their high bit set, and only those.
+		 * Unlike the shorter (x - 0x01..) & ~x & 0x80.. form it has no false positives, so the match
+		 * can be taken from either end of the word
+		 */
+		private static long match(long word, long pattern) {
+			final long x = word ^ pattern;
+			return ~(((x & LOW7) + LOW7) | x | LOW7);
+		}
+		
+		@Override
+		public int indexOf(byte[] b, int from, int to, byte value) {
+			final long pattern = (value & 0xFFL) * ONES;
+			int i = from;
+			for (; i <= to - 8; i += 8) {
+				final long m = match((long) LONGS.get(b, i), pattern);
+				if (m != 0) {
+					return i + (Long.numberOfTrailingZeros(m) >>> 3);
+				}
+			}
+			for (; i < to; ++i) {
+				if (b[i] == value) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		
+		@Override
+		public int indexOf(ByteBuffer buffer, int from, int to, byte value) {
+			if (buffer.hasArray()) {
+				final int offset = buffer.arrayOffset();
+				final int i = indexOf(buffer.array(), offset + from, offset + to, value);
+				return i < 0 ? i : i - offset;
+			}
+			final long pattern = (value & 0xFFL) * ONES;
+			final boolean little = buffer.order() == ByteOrder.LITTLE_ENDIAN; // first byte is the least significant
+			int i = from;
+			for (; i <= to - 8; i += 8) {
+				final long m = match(buffer.getLong(i), pattern);
+				if (m != 0) {
+					return i + ((little ? Long.numberOfTrailingZeros(m) : Long.numberOfLeadingZeros(m)) >>> 3);
+				}
+			}
+			for (; i < to; ++i) {
+				if (buffer.get(i) == value) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		
+		@Override
+		public String getName() {
+			return "swar";
+		}
+		
+	}
+	
+}
@@ -0,0 +1,194 @@
+package com.delmesoft.httpserver.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+import com.delmesoft.httpserver.HttpRequest;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class FileSink {
+	
+	public static final int DEFAULT_BUFFER_SIZE = BufferPool.MAX_SIZE;
+	public static final long DEFAULT_SYNC_INTERVAL = 1024 << 13; // 8 MB
+	
+	public enum SyncPolicy {
+		/** Leave written data to the operating system */
+		NONE,
+		/** Force data to the device once the whole body is written */
+		ON_COMPLETE,
+		/** Force data to the device every sync interval bytes and once the whole body is written */
+		INTERVAL
+	}
+	
+	public interface ProgressListener {
+		
+		/**
+		 * Called after each write to the file
+		 * @param transferred body bytes written so far
+		 * @param contentLength Content-Length, -1 if chunked
+		 */
+		void onProgress(long transferred, long contentLength);
+		
+	}
+	
+	private final FileChannel channel;
+	
+	private SyncPolicy syncPolicy;
+	private long syncInterval;
+	private boolean syncMetadata;
+	private ProgressListener progressListener;
+	private int bufferSize;
+	
+	/**
+	 * Create a sink writing bodies at the position of a file channel
+	 * @param channel file channel open for writing
+	 */
+	public FileSink(FileChannel channel) {
+		this.channel = channel;
+		this.syncPolicy = SyncPolicy.ON_COMPLETE;
+		this.syncInterval = DEFAULT_SYNC_INTERVAL;
+		this.bufferSize = DEFAULT_BUFFER_SIZE;
+	}
+	
+	/**
+	 * Write request body to the file, Content-Length and chunked bodies are read through a pooled direct
+	 * buffer so heap use does not grow with the body. 100 Continue is sent if the client expects it
+	 * @param httpRequest request
+	 * @return number of body bytes written
+	 * @throws IOException Connection or file error, bytes written so far are left in the file
+	 */
+	public long write(HttpRequest httpRequest) throws IOException {
+		return write(httpRequest.getContentChannel(), httpRequest.getContentLength());
+	}
+	
+	/**
+	 * Write a channel to the file until its end
+	 * @param source source channel
+	 * @param contentLength length reported to the progress listener, -1 if unknown
+	 * @return number of bytes written
+	 * @throws IOException Source or file error
+	 */
+	public long write(ReadableByteChannel source, long contentLength) throws IOException {
+		final ByteBuffer buffer = BufferPool.DIRECT.acquire(bufferSize);
+		try {
+			long transferred = 0, synced = 0;
+			int n;
+			while ((n = source.read(buffer)) >= 0) {
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				buffer.clear();
+				transferred += n;
+				if (syncPolicy == SyncPolicy.INTERVAL && transferred - synced >= syncInterval) {
+					channel.force(syncMetadata);
+					synced = transferred;
+				}
+				if (progressListener != null) {
+					progressListener.onProgress(transferred, contentLength);
+				}
+			}
+			if (syncPolicy != SyncPolicy.NONE) {
+				channel.force(syncMetadata);
+			}
+			return transferred;
+		} finally {
+			BufferPool.DIRECT.release(buffer);
+		}
+	}
+	
+	public FileChannel getChannel() {
+		return channel;
+	}
+	
+	public SyncPolicy getSyncPolicy() {
+		return syncPolicy;
+	}
+	
+	public FileSink setSyncPolicy(SyncPolicy syncPolicy) {
+		this.syncPolicy = syncPolicy;
+		return this;
+	}
+	
+	public long getSyncInterval() {
+		return syncInterval;
+	}
+	
+	/**
+	 * Set how many bytes are written between forces with SyncPolicy.INTERVAL
+	 * @param syncInterval interval in bytes
+	 * @return this sink
+	 */
+	public FileSink setSyncInterval(long syncInterval) {
+		this.syncInterval = syncInterval;
+		return this;
+	}
+	
+	public boolean isSyncMetadata() {
+		return syncMetadata;
+	}
+	
+	/**
+	 * Force file metadata, such as its size, along with its content
+	 * @param syncMetadata true to force metadata
+	 * @return this sink
+	 */
+	public FileSink setSyncMetadata(boolean syncMetadata) {
+		this.syncMetadata = syncMetadata;
+		return this;
+	}
+	
+	public ProgressListener getProgressListener() {
+		return progressListener;
+	}
+	
+	public FileSink setProgressListener(ProgressListener progressListener) {
+		this.progressListener = progressListener;
+		return this;
+	}
+	
+	public int getBufferSize() {
+		return bufferSize;
+	}
+	
+	/**
+	 * Set size of the direct buffer bodies are moved through, sizes past BufferPool.MAX_SIZE are not pooled
+	 * @param bufferSize size in bytes
+	 * @return this sink
+	 */
+	public FileSink setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+		return this;
+	}
+	
+}
@@ -0,0 +1,311 @@
+package com.delmesoft.httpserver.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.delmesoft.httpserver.Constants;
+import com.delmesoft.httpserver.Cookie;
+import com.delmesoft.httpserver.HttpResponse.Status;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class HeadEncoder {
+	
+	public static final int INITIAL_CAPACITY = 1024;
+	
+	private static final String[] NAMES = { 
+			"Date", "Vary", "ETag", "Server", "Expires", "Upgrade", "Location", "Connection", "Keep-Alive", "Set-Cookie", 
+			"Retry-After", "Content-Type", "Cache-Control", "Last-Modified", "Content-Length", "Content-Encoding", 
+			"Transfer-Encoding", "WWW-Authenticate", "Sec-WebSocket-Accept", "Access-Control-Allow-Origin" };
+	
+	private static final Status[] STATUSES = new Status[600]; // by code
+	private static final byte[][] STATUS_LINES; // by ordinal
+	private static final Map<String, byte[]> HEADER_NAMES;
+	
+	private static final byte[] PROTOCOL = (Constants.PROTOCOL + ' ').getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] CRLF = { 13, 10 };
+	private static final byte[] SEPARATOR = { ':', ' ' };
+	
+	private static volatile CachedDate cachedDate;
+	
+	static {
+		final Status[] values = Status.values();
+		STATUS_LINES = new byte[values.length][];
+		for (Status status : values) {
+			STATUSES[status.getCode()] = status;
+			STATUS_LINES[status.ordinal()] = (Constants.PROTOCOL + ' ' + status.getCode() + ' ' + status.getMessage() + "\r\n").getBytes(StandardCharsets.US_ASCII);
+		}
+		HEADER_NAMES = new HashMap<>();
+		for (String name : NAMES) {
+			HEADER_NAMES.put(name, (name + ": ").getBytes(StandardCharsets.US_ASCII));
+		}
+	}
+	
+	private ByteBuffer pooled;
+	private byte[] buffer;
+	private int count;
+	
+	/**
+	 * Append status line, the serialized line of a Status is reused when code and message match it
+	 * @param code status code
+	 * @param message reason phrase
+	 * @return this
+	 */
+	public HeadEncoder statusLine(int code, String message) {
+		final Status status = code >= 0 && code < STATUSES.length ? STATUSES[code] : null;
+		if (status != null && status.getMessage().equals(message)) {
+			return put(STATUS_LINES[status.ordinal()]);
+		}
+		put(PROTOCOL);
+		putLong(code);
+		put((byte) ' ');
+		putString(String.valueOf(message));
+		return put(CRLF);
+	}
+	
+	/**
+	 * Append a header field, well known names are copied from cached bytes
+	 * @param name header name
+	 * @param value header value
+	 * @return this
+	 */
+	public HeadEncoder header(String name, String value) {
+		putName(name);
+		putString(String.valueOf(value));
+		return put(CRLF);
+	}
+	
+	public HeadEncoder header(String name, long value) {
+		putName(name);
+		putLong(value);
+		return put(CRLF);
+	}
+	
+	/**
+	 * Append Date header, formatted once per second
+	 * @return this
+	 */
+	public HeadEncoder date() {
+		final long second = System.currentTimeMillis() / 1000;
+		CachedDate date = cachedDate;
+		if (date == null || date.second != second) {
+			cachedDate = date = new CachedDate(second, ("Date: " + format(new Date(second * 1000)) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+		}
+		return put(date.line);
+	}
+	
+	/**
+	 * Append a Set-Cookie header
+	 * @param cookie cookie
+	 * @return this
+	 */
+	public HeadEncoder cookie(Cookie cookie) {
+		putName("Set-Cookie");
+		cookie.encode(this);
+		return put(CRLF);
+	}
+	
+	/**
+	 * Append a string to the current field
+	 * @param s string, null is appended as "null"
+	 * @return this
+	 */
+	public HeadEncoder append(String s) {
+		putString(String.valueOf(s));
+		return this;
+	}
+	
+	public HeadEncoder append(long value) {
+		putLong(value);
+		return this;
+	}
+	
+	public HeadEncoder append(char c) {
+		if (c < 0x80) {
+			return put((byte) c);
+		}
+		putString(String.valueOf(c));
+		return this;
+	}
+	
+	/**
+	 * Append a date in HTTP format
+	 * @param date date
+	 * @return this
+	 */
+	public HeadEncoder append(Date date) {
+		putString(format(date));
+		return this;
+	}
+	
+	/**
+	 * Append the empty line ending the head
+	 * @return this
+	 */
+	public HeadEncoder end() {
+		return put(CRLF);
+	}
+	
+	/**
+	 * Write encoded bytes and give the buffer back to the pool, the encoder can be used again
+	 * @param os target stream
+	 * @throws IOException
+	 */
+	public void writeTo(OutputStream os) throws IOException {
+		try {
+			if (count > 0) {
+				os.write(buffer, 0, count);
+			}
+		} finally {
+			release();
+		}
+	}
+	
+	/**
+	 * Give the buffer back to the pool dropping encoded bytes
+	 */
+	public void release() {
+		if (pooled != null) {
+			BufferPool.HEAP.release(pooled);
+			pooled = null;
+			buffer = null;
+		}
+		count = 0;
+	}
+	
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * Return encoded bytes as a string, the encoder is released
+	 */
+	@Override
+	public String toString() {
+		try {
+			return count > 0 ? new String(buffer, 0, count, StandardCharsets.UTF_8) : "";
+		} finally {
+			release();
+		}
+	}
+	
+	private void putName(String name) {
+		final byte[] cached = HEADER_NAMES.get(name);
+		if (cached != null) {
+			put(cached);
+		} else {
+			putString(name);
+			put(SEPARATOR);
+		}
+	}
+	
+	/**
+	 * Append a string, ASCII characters are copied one byte each and the rest is encoded as UTF-8
+	 */
+	private void putString(String s) {
+		final int len = s.length();
+		ensureCapacity(len);
+		for (int i = 0; i < len; ++i) {
+			final char c = s.charAt(i);
+			if (c >= 0x80) {
+				put(s.substring(i).getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+			buffer[count++] = (byte) c;
+		}
+	}
+	
+	private void putLong(long value) {
+		ensureCapacity(20);
+		if (value < 0) {
+			if (value == Long.MIN_VALUE) {
+				putString(Long.toString(value));
+				return;
+			}
+			buffer[count++] = '-';
+			value = -value;
+		}
+		int digits = 1;
+		for (long n = value; n >= 10; n /= 10) ++digits;
+		for (int i = count + digits - 1; i >= count; --i) {
+			buffer[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		count += digits;
+	}
+	
+	private HeadEncoder put(byte[] b) {
+		ensureCapacity(b.length);
+		System.arraycopy(b, 0, buffer, count, b.length);
+		count += b.length;
+		return this;
+	}
+	
+	private HeadEncoder put(byte b) {
+		ensureCapacity(1);
+		buffer[count++] = b;
+		return this;
+	}
+	
+	private void ensureCapacity(int n) {
+		if (buffer == null) {
+			pooled = BufferPool.HEAP.acquire(Math.max(INITIAL_CAPACITY, n));
+			buffer = pooled.array();
+		} else if (count + n > buffer.length) {
+			pooled.limit(pooled.capacity()).position(count);
+			pooled = BufferPool.HEAP.grow(pooled, Math.max(buffer.length << 1, count + n));
+			buffer = pooled.array();
+		}
+	}
+	
+	private static String format(Date date) {
+		synchronized (Constants.DATE_FORMAT) { // SimpleDateFormat is not thread safe
+			return Constants.DATE_FORMAT.format(date);
+		}
+	}
+	
+	private static class CachedDate {
+		
+		final long second;
+		final byte[] line;
+		
+		CachedDate(long second, byte[] line) {
+			this.second = second;
+			this.line = line;
+		}
+		
+	}
+	
+}
@@ -1,56 +1,85 @@
-package com.delmesoft.httpserver.utils;
-
-import java.io.InputStream;
-
-/*
- * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
- * All rights reserved.
- * 
- * Redistribution and use in source and binary forms, with or without
- * modification, are permitted provided that the following conditions are met:
- * 
- * 1. Redistributions of source code must retain the above copyright notice, this
- *    list of conditions and the following disclaimer.
- * 
- * 2. Redistributions in binary form must reproduce the above copyright notice,
- *    this list of conditions and the following disclaimer in the documentation
- *    and/or other materials provided with the distribution.
- * 
- * 3. Neither the name of the copyright holder nor the names of its
- *    contributors may be used to endorse or promote products derived from
- *    this software without specific prior written permission.
- *    	
- * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
- * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
- * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
- * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
- * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
- * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
- * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
- * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
- * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
- * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
- */
-public class LineReader {
-	
-	private byte[] buffer = new byte[8];
-	public String readLine(InputStream is) throws Exception {
-		int size = 0;
-		int b;
-		while ((b = is.read()) != 10) { // LF
-			if (b == -1) { // end of the stream
-				return null;
-			}
-			if (b != 13 && b != 0) { // CR
-				if(size == buffer.length) { // resize
-					byte[] tmp = new byte[(int) (size * 1.75)];
-					System.arraycopy(buffer, 0, tmp, 0, size);
-					buffer = tmp;
-				}
-				buffer[size++] = (byte) b;
-			}
-		}
-		return new String(buffer, 0, size, "UTF-8");
-	}
-
-}
+package com.delmesoft.httpserver.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class LineReader {
+	
+	public static final int DEFAULT_MAX_LENGTH = 1024 << 6;
+	
+	private final int maxLength;
+	
+	public LineReader() {
+		this(DEFAULT_MAX_LENGTH);
+	}
+	
+	/**
+	 * Create a reader failing on longer lines instead of growing its buffer
+	 * @param maxLength bytes without terminator, 0 for unlimited
+	 */
+	public LineReader(int maxLength) {
+		this.maxLength = maxLength;
+	}
+	
+	/**
+	 * Read a line terminated by LF, CR and NUL characters are skipped
+	 * @param is source stream
+	 * @return line without terminator, null at end of the stream
+	 * @throws Exception Connection error or line longer than the limit
+	 */
+	public String readLine(InputStream is) throws Exception {
+		ByteBuffer buffer = BufferPool.HEAP.acquire(BufferPool.MIN_SIZE); // pooled, released once the line is decoded
+		try {
+			int b;
+			while ((b = is.read()) != 10) { // LF
+				if (b == -1) { // end of the stream
+					return null;
+				}
+				if (b != 13 && b != 0) { // CR
+					if(!buffer.hasRemaining()) { // resize
+						if (maxLength > 0 && buffer.position() >= maxLength) {
+							throw new IOException("Line too long");
+						}
+						buffer = BufferPool.HEAP.grow(buffer, buffer.capacity() << 1);
+					}
+					buffer.put((byte) b);
+				}
+			}
+			return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+		} finally {
+			BufferPool.HEAP.release(buffer);
+		}
+	}
+
+}
@@ -1,52 +1,218 @@
-package com.delmesoft.httpserver.utils;
-
-import java.util.HashMap;
-import java.util.Map;
-
-import com.delmesoft.httpserver.HttpListener;
-import com.delmesoft.httpserver.HttpRequest;
-import com.delmesoft.httpserver.HttpResponse;
-import com.delmesoft.httpserver.HttpResponse.Status;
-import com.delmesoft.httpserver.handler.WebServerHandler;
-
-public class PathHandler implements HttpListener {
-
-	private Map<String, HttpListener> listenerMap = new HashMap<>();
-
-	@Override
-	public HttpResponse onHttpRequest(HttpRequest httpRequest) throws Exception {
-		
-		final String path = httpRequest.getPath();
-		
-		String tmp = "/", key = tmp;
-		HttpListener httpListener = listenerMap.get(tmp);
-		final String[] tokens = path.split("/");
-		for (int i = 1; i < tokens.length; ++i) {
-			tmp += tokens[i];
-			HttpListener value = listenerMap.get(tmp);
-			tmp += "/";
-			if (value != null) {
-				key = tmp;
-				httpListener = value;
-			}
-		}
-
-		if (httpListener != null) {
-			if (httpListener instanceof WebServerHandler) {
-				httpRequest.setPath(path.substring(key.length() - 1));
-				if (httpRequest.getPath().isEmpty()) {
-					httpRequest.setPath("/");
-				}
-			}
-			return httpListener.onHttpRequest(httpRequest);
-		}
-		
-		return HttpResponse.build(Status.NOT_FOUND);
-	}
-
-	public void addHttpListener(String path, HttpListener listener) {
-		listenerMap.put(path, listener);
-	}
-	
-
-}
+package com.delmesoft.httpserver.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.delmesoft.httpserver.HttpListener;
+import com.delmesoft.httpserver.HttpRequest;
+import com.delmesoft.httpserver.HttpResponse;
+import com.delmesoft.httpserver.HttpResponse.Status;
+import com.delmesoft.httpserver.handler.WebServerHandler;
+
+public class PathHandler implements HttpListener {
+
+	private Map<String, Route> routeMap = new HashMap<>();
+
+	@Override
+	public HttpResponse onHttpRequest(HttpRequest httpRequest) throws Exception {
+		
+		final Route route = route(httpRequest);
+
+		if (route != null) {
+			return route.listener.onHttpRequest(route.rewrite(httpRequest));
+		}
+		
+		return HttpResponse.build(Status.NOT_FOUND);
+	}
+	
+	@Override
+	public CompletableFuture<HttpResponse> onHttpRequestAsync(HttpRequest httpRequest) throws Exception {
+		
+		final Route route = route(httpRequest);
+		
+		if (route != null) {
+			return route.listener.onHttpRequestAsync(route.rewrite(httpRequest));
+		}
+		
+		return CompletableFuture.completedFuture(HttpResponse.build(Status.NOT_FOUND));
+	}
+	
+	/**
+	 * Refuse uploads to paths without a route, others are checked by the route listener with the
+	 * same path it is later handed in onHttpRequest
+	 */
+	@Override
+	public HttpResponse onExpectContinue(HttpRequest httpRequest) throws Exception {
+		final Route route = route(httpRequest);
+		if (route == null) {
+			return HttpResponse.build(Status.NOT_FOUND);
+		}
+		final String path = httpRequest.getPath();
+		try {
+			return route.listener.onExpectContinue(route.rewrite(httpRequest));
+		} finally { // onHttpRequest rewrites the original path again
+			httpRequest.setPath(path);
+			httpRequest.setRoute(route);
+		}
+	}
+	
+	@Override
+	public boolean isAsync(HttpRequest httpRequest) {
+		final Route route = route(httpRequest);
+		return route != null && route.listener.isAsync(httpRequest);
+	}
+	
+	/**
+	 * Find the route of a request, it is kept in the request until its path changes
+	 */
+	private Route route(HttpRequest httpRequest) {
+		final Object cached = httpRequest.getRoute();
+		if (cached instanceof Route && ((Route) cached).owner == this) {
+			return (Route) cached;
+		}
+		final Route route = findRoute(httpRequest.getPath());
+		httpRequest.setRoute(route);
+		return route;
+	}
+	
+	@Override
+	public Executor getExecutor(HttpRequest httpRequest) {
+		final Route route = route(httpRequest);
+		if (route == null) {
+			return null;
+		}
+		return route.executor != null ? route.executor : route.listener.getExecutor(httpRequest);
+	}
+	
+	@Override
+	public boolean isNonBlocking(HttpRequest httpRequest) {
+		final Route route = route(httpRequest);
+		return route != null && route.executor == null && route.listener.isNonBlocking(httpRequest);
+	}
+	
+	@Override
+	public int getRequestTimeout(HttpRequest httpRequest) {
+		final Route route = route(httpRequest);
+		if (route == null) {
+			return -1;
+		}
+		return route.requestTimeout >= 0 ? route.requestTimeout : route.listener.getRequestTimeout(httpRequest);
+	}
+	
+	@Override
+	public void onRequestTimeout(HttpRequest httpRequest, boolean dropped) {
+		final Route route = route(httpRequest);
+		if (route != null) {
+			route.timeoutCount.increment();
+			route.listener.onRequestTimeout(httpRequest, dropped);
+		}
+	}
+	
+	/**
+	 * Find the route registered for the longest leading path segments
+	 */
+	private Route findRoute(String path) {
+		Route route = routeMap.get("/");
+		int start = 1, end;
+		while (start < path.length()) {
+			end = path.indexOf('/', start);
+			if (end < 0) {
+				end = path.length();
+			}
+			final Route value = routeMap.get(path.substring(0, end));
+			if (value != null) {
+				route = value;
+			}
+			start = end + 1;
+		}
+		return route;
+	}
+
+	public void addHttpListener(String path, HttpListener listener) {
+		addHttpListener(path, listener, null, -1);
+	}
+	
+	/**
+	 * Add a listener whose requests run on their own executor, a slow route then only exhausts its own
+	 * threads. A WorkerPool rejects requests once full, they are answered with 503
+	 * @param path route path
+	 * @param listener route listener
+	 * @param executor route executor, null for the server executor
+	 */
+	public void addHttpListener(String path, HttpListener listener, Executor executor) {
+		addHttpListener(path, listener, executor, -1);
+	}
+	
+	/**
+	 * Add a listener with its own executor and request timeout
+	 * @param path route path
+	 * @param listener route listener
+	 * @param executor route executor, null for the server executor
+	 * @param requestTimeout timeout in milliseconds, 0 disables it, negative for the server timeout
+	 */
+	public void addHttpListener(String path, HttpListener listener, Executor executor, int requestTimeout) {
+		routeMap.put(path, new Route(this, path, listener, executor, requestTimeout));
+	}
+	
+	/**
+	 * Return executors of the routes that have one, for metrics
+	 * @return path to executor map
+	 */
+	public Map<String, Executor> getExecutors() {
+		final Map<String, Executor> executors = new HashMap<>();
+		for (Map.Entry<String, Route> entry : routeMap.entrySet()) {
+			if (entry.getValue().executor != null) {
+				executors.put(entry.getKey(), entry.getValue().executor);
+			}
+		}
+		return executors;
+	}
+	
+	/**
+	 * Return number of requests per route whose deadline was exceeded, timed out or dropped
+	 * @return path to count map
+	 */
+	public Map<String, Long> getRequestTimeoutCounts() {
+		final Map<String, Long> counts = new HashMap<>();
+		for (Map.Entry<String, Route> entry : routeMap.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().timeoutCount.sum());
+		}
+		return counts;
+	}
+	
+	private static class Route {
+		
+		final PathHandler owner; // routes of nested handlers share the request cache
+		final String path;
+		final HttpListener listener;
+		final Executor executor;
+		final int requestTimeout;
+		final LongAdder timeoutCount;
+		
+		Route(PathHandler owner, String path, HttpListener listener, Executor executor, int requestTimeout) {
+			this.owner = owner;
+			this.path = path;
+			this.listener = listener;
+			this.executor = executor;
+			this.requestTimeout = requestTimeout;
+			this.timeoutCount = new LongAdder();
+		}
+		
+		/**
+		 * Make the path of a WebServerHandler request relative to the route
+		 */
+		HttpRequest rewrite(HttpRequest httpRequest) {
+			if (listener instanceof WebServerHandler) {
+				final String relative = httpRequest.getPath().substring(path.equals("/") ? 0 : path.length());
+				httpRequest.setPath(relative.isEmpty() ? "/" : relative);
+				httpRequest.setRoute(this);
+			}
+			return httpRequest;
+		}
+		
+	}
+
+}
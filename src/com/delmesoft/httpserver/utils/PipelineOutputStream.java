@@ -0,0 +1,145 @@
+package com.delmesoft.httpserver.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class PipelineOutputStream extends FilterOutputStream {
+	
+	public static final int DEFAULT_BUFFER_SIZE = 1024 << 3;
+	
+	private final int bufferSize;
+	private ByteBuffer pooled; // acquired on first write, released once flushed
+	private byte[] buffer;
+	private int count;
+	
+	private boolean deferFlush;
+	
+	public PipelineOutputStream(OutputStream out) {
+		this(out, DEFAULT_BUFFER_SIZE);
+	}
+
+	public PipelineOutputStream(OutputStream out, int bufferSize) {
+		super(out);
+		this.bufferSize = bufferSize;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (buffer == null) {
+			acquire();
+		} else if (count == buffer.length) {
+			flushBuffer();
+		}
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b) throws IOException {
+		write(b, 0, b.length);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (len >= bufferSize) { // write directly
+			flushBuffer();
+			out.write(b, off, len);
+		} else {
+			if (buffer == null) {
+				acquire();
+			} else if (len > buffer.length - count) {
+				flushBuffer();
+			}
+			System.arraycopy(b, off, buffer, count, len);
+			count += len;
+		}
+	}
+
+	private void acquire() {
+		pooled = BufferPool.HEAP.acquire(bufferSize);
+		buffer = pooled.array();
+	}
+	
+	private void release() {
+		if (pooled != null) {
+			BufferPool.HEAP.release(pooled);
+			pooled = null;
+			buffer = null;
+			count = 0;
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		if (count > 0) {
+			out.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+
+	/**
+	 * Flush buffered bytes unless flushing is deferred, the buffer goes back to the pool
+	 * so idle connections hold none
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (!deferFlush) {
+			flushBuffer();
+			release();
+			out.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		deferFlush = false;
+		try {
+			super.close();
+		} finally {
+			release();
+		}
+	}
+
+	public boolean isDeferFlush() {
+		return deferFlush;
+	}
+
+	/**
+	 * Defer flush while more pipelined responses are going to be written,
+	 * so a whole batch goes out in a single write
+	 * @param deferFlush true to ignore flush calls
+	 */
+	public void setDeferFlush(boolean deferFlush) {
+		this.deferFlush = deferFlush;
+	}
+
+}
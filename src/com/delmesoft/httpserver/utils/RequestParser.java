@@ -0,0 +1,356 @@
+package com.delmesoft.httpserver.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.delmesoft.httpserver.HttpException;
+import com.delmesoft.httpserver.HttpHeaders;
+import com.delmesoft.httpserver.HttpResponse.Status;
+import com.delmesoft.httpserver.RequestLimits;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class RequestParser {
+	
+	public static final int BUFFER_SIZE = 1024 << 3; // bytes read from a stream at once
+	
+	private static final int REQUEST_LINE = 0, HEADERS = 1, DONE = 2;
+	
+	private static final String[] METHODS = { "GET", "PUT", "POST", "HEAD", "PATCH", "DELETE", "OPTIONS", "CONNECT", "TRACE" };
+	private static final String[] PROTOCOLS = { "HTTP/1.1", "HTTP/1.0" };
+	public interface Source {
+		
+		/**
+		 * Feed buffered bytes to the parser until it has a complete request head, waiting for more
+		 * bytes as needed. Bytes after the head are left in the source
+		 * @param parser parser
+		 * @return false at end of the stream before the first byte of a request
+		 * @throws IOException Connection error
+		 * @throws HttpException Malformed request line
+		 */
+		boolean readRequest(RequestParser parser) throws IOException, HttpException;
+		
+	}
+	
+	private int state;
+	private boolean started;
+	
+	private byte[] line; // line split between reads
+	private int lineLength;
+	
+	private String method;
+	private String target;
+	private String protocol;
+	private final HttpHeaders headers;
+	
+	private final DelimiterScanner scanner;
+	
+	private RequestLimits limits;
+	private int headerSize; // bytes of header lines parsed
+	
+	private ByteBuffer single;
+	
+	public RequestParser() {
+		this(new HttpHeaders());
+	}
+	
+	/**
+	 * Create a parser adding header fields to the given store
+	 * @param headers header store, cleared on reset
+	 */
+	public RequestParser(HttpHeaders headers) {
+		this(headers, DelimiterScanner.get());
+	}
+	
+	/**
+	 * Create a parser finding line ends and separators with the given scanner
+	 * @param headers header store, cleared on reset
+	 * @param scanner delimiter scanner
+	 */
+	public RequestParser(HttpHeaders headers, DelimiterScanner scanner) {
+		this.headers = headers;
+		this.scanner = scanner;
+	}
+	
+	/**
+	 * Prepare parser for next request head
+	 */
+	public void reset() {
+		state = REQUEST_LINE;
+		started = false;
+		lineLength = 0;
+		headerSize = 0;
+		method = target = protocol = null;
+		headers.clear();
+	}
+	
+	/**
+	 * Parse bytes from buffer position to its limit, it can be called again with the following bytes
+	 * until it returns true. The buffer is left positioned after the last consumed byte
+	 * @param buffer heap or direct buffer
+	 * @return true once request line and headers are complete, bytes after them are not consumed
+	 * @throws HttpException Malformed request line
+	 */
+	public boolean parse(ByteBuffer buffer) throws HttpException {
+		while (state != DONE && buffer.hasRemaining()) {
+			started = true;
+			final int start = buffer.position();
+			final int limit = buffer.limit();
+			final int lf = scanner.indexOf(buffer, start, limit, (byte) 10);
+			if (lf < 0) { // line continues in next read
+				checkLine(lineLength + limit - start);
+				append(buffer, start, limit);
+				buffer.position(limit);
+				return false;
+			}
+			checkLine(lineLength + lf + 1 - start);
+			buffer.position(lf + 1);
+			if (lineLength == 0 && buffer.hasArray()) { // whole line in the buffer, decoded in place
+				onLine(buffer.array(), buffer.arrayOffset() + start, lf - start);
+			} else {
+				append(buffer, start, lf);
+				onLine(line, 0, lineLength);
+				lineLength = 0;
+			}
+		}
+		return state == DONE;
+	}
+	
+	/**
+	 * Read a request head from a stream. Sources and PushbackInputStreams created with a pushback buffer of
+	 * BUFFER_SIZE are read in bulk, bytes read past the head are pushed back. Other streams are read per byte
+	 * @param is source stream
+	 * @return false at end of the stream before the first byte of a request
+	 * @throws IOException Connection error or stream ending within the head
+	 * @throws HttpException Malformed request line
+	 */
+	public boolean read(InputStream is) throws IOException, HttpException {
+		reset();
+		if (is instanceof Source) {
+			return ((Source) is).readRequest(this);
+		}
+		if (is instanceof PushbackInputStream) {
+			return read((PushbackInputStream) is);
+		}
+		if (single == null) {
+			single = ByteBuffer.allocate(1);
+		}
+		int b;
+		while ((b = is.read()) != -1) {
+			single.clear();
+			single.put(0, (byte) b);
+			if (parse(single)) {
+				return true;
+			}
+		}
+		return end();
+	}
+	
+	private boolean read(PushbackInputStream is) throws IOException, HttpException {
+		final ByteBuffer buffer = BufferPool.HEAP.acquire(BUFFER_SIZE);
+		try {
+			final byte[] b = buffer.array();
+			final int length = Math.min(b.length, BUFFER_SIZE); // pushback capacity
+			while (true) {
+				final int available = is.available(); // pushed back bytes must not wait for the socket
+				final int n = is.read(b, 0, available > 0 ? Math.min(available, length) : length);
+				if (n < 0) {
+					return end();
+				}
+				buffer.limit(n).position(0);
+				if (parse(buffer)) {
+					if (buffer.hasRemaining()) {
+						is.unread(b, buffer.position(), buffer.remaining());
+					}
+					return true;
+				}
+			}
+		} finally {
+			BufferPool.HEAP.release(buffer);
+		}
+	}
+	
+	/**
+	 * Handle end of the stream
+	 * @return false if no request was started
+	 * @throws EOFException Stream ended within a request head
+	 */
+	public boolean end() throws EOFException {
+		if (started) {
+			throw new EOFException("Incomplete request head");
+		}
+		return false;
+	}
+	
+	/**
+	 * Check a line against the limits before it is buffered or decoded
+	 * @param length line bytes, CRLF included
+	 * @throws HttpException Request line or header fields too large
+	 */
+	private void checkLine(int length) throws HttpException {
+		if (limits == null) {
+			return;
+		}
+		if (state == REQUEST_LINE) {
+			final int max = limits.getMaxRequestLineLength();
+			if (max > 0 && length > max + 2) {
+				limits.recordRequestLineTooLong();
+				throw new HttpException("Request line too long").setStatus(Status.URI_TOO_LONG);
+			}
+		} else {
+			final int max = limits.getMaxHeaderSize();
+			if (max > 0 && headerSize + length > max) {
+				limits.recordHeaderTooLarge();
+				throw new HttpException("Request header fields too large").setStatus(Status.REQUEST_HEADER_FIELDS_TOO_LARGE);
+			}
+		}
+	}
+	
+	private void append(ByteBuffer buffer, int from, int to) {
+		final int n = to - from;
+		if (line == null) {
+			line = new byte[Math.max(256, Integer.highestOneBit(n) << 1)];
+		} else if (lineLength + n > line.length) {
+			line = Arrays.copyOf(line, Integer.highestOneBit(lineLength + n) << 1);
+		}
+		buffer.get(from, line, lineLength, n);
+		lineLength += n;
+	}
+	
+	private void onLine(byte[] b, int off, int len) throws HttpException {
+		if (state == HEADERS) {
+			headerSize += len + 1;
+		}
+		if (len > 0 && b[off + len - 1] == 13) { // CR
+			--len;
+		}
+		if (state == REQUEST_LINE) {
+			if (len == 0) { // empty lines before a request are ignored
+				return;
+			}
+			final int end = off + len;
+			final int sp1 = scanner.indexOf(b, off, end, (byte) 32);
+			int sp2 = end - 1;
+			while (sp2 > sp1 && b[sp2] != 32) --sp2;
+			if (sp1 <= off || sp2 <= sp1 + 1 || sp2 == end - 1
+					|| scanner.indexOf(b, sp1 + 1, sp2, (byte) 32) >= 0) { // exactly one space between parts, none in the target
+				throw new HttpException("Malformed request line").setStatus(Status.BAD_REQUEST);
+			}
+			method = token(b, off, sp1, METHODS);
+			target = decode(b, sp1 + 1, sp2);
+			protocol = token(b, sp2 + 1, end, PROTOCOLS);
+			state = HEADERS;
+		} else if (len == 0) { // end of head
+			state = DONE;
+		} else {
+			final int end = off + len;
+			final int colon = scanner.indexOf(b, off, end, (byte) ':');
+			if (colon <= off) { // not a header field, ignored
+				return;
+			}
+			if (limits != null && limits.getMaxHeaderCount() > 0 && headers.size() >= limits.getMaxHeaderCount()) {
+				limits.recordHeaderCountExceeded();
+				throw new HttpException("Too many header fields").setStatus(Status.REQUEST_HEADER_FIELDS_TOO_LARGE);
+			}
+			int from = colon + 1, to = end;
+			while (from < to && (b[from] == 32 || b[from] == 9)) ++from; // optional white space
+			while (to > from && (b[to - 1] == 32 || b[to - 1] == 9)) --to;
+			headers.add(HttpHeaders.name(b, off, colon), b, from, to); // value decoded when read
+		}
+	}
+	
+	/**
+	 * Return a shared string for well known tokens, so they are not allocated per request
+	 */
+	private static String token(byte[] b, int from, int to, String[] known) {
+		final int len = to - from;
+		for (String s : known) {
+			if (s.length() == len) {
+				int i = 0;
+				while (i < len && b[from + i] == s.charAt(i)) ++i;
+				if (i == len) {
+					return s;
+				}
+			}
+		}
+		return decode(b, from, to);
+	}
+	
+	private static String decode(byte[] b, int from, int to) {
+		for (int i = from; i < to; ++i) {
+			if (b[i] < 0) { // not ASCII
+				return new String(b, from, to - from, StandardCharsets.UTF_8);
+			}
+		}
+		return new String(b, from, to - from, StandardCharsets.ISO_8859_1); // plain copy
+	}
+	
+	public boolean isComplete() {
+		return state == DONE;
+	}
+	
+	public String getMethod() {
+		return method;
+	}
+	
+	/**
+	 * Return request target as sent, including the query
+	 * @return request target
+	 */
+	public String getTarget() {
+		return target;
+	}
+	
+	public String getProtocol() {
+		return protocol;
+	}
+	
+	public HttpHeaders getHeaders() {
+		return headers;
+	}
+	
+	public RequestLimits getLimits() {
+		return limits;
+	}
+	
+	/**
+	 * Set limits checked while parsing, lines are rejected before being buffered
+	 * @param limits request limits, null for none
+	 */
+	public void setLimits(RequestLimits limits) {
+		this.limits = limits;
+	}
+	
+}
@@ -0,0 +1,97 @@
+package com.delmesoft.httpserver.utils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public interface ServerChannelProvider {
+	
+	public static final ServerChannelProvider DEFAULT = new ServerChannelProvider() {
+		@Override
+		public ServerSocketChannel openServerChannel() throws IOException {
+			return ServerSocketChannel.open();
+		}
+		@Override
+		public void bind(ServerSocketChannel serverSocketChannel, InetSocketAddress address, int backlog) throws IOException {
+			serverSocketChannel.bind(address, backlog);
+		}
+	};
+	
+	/**
+	 * Create new Unix domain socket ServerChannelProvider instance, host and port of the server are ignored
+	 * @param path socket file, replaced if it already exists and deleted when server disconnects
+	 */
+	public static ServerChannelProvider newUnixDomainInstance(Path path) {
+		return new ServerChannelProvider() {
+			@Override
+			public ServerSocketChannel openServerChannel() throws IOException {
+				return ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			}
+			@Override
+			public void bind(ServerSocketChannel serverSocketChannel, InetSocketAddress address, int backlog) throws IOException {
+				Files.deleteIfExists(path); // stale file of a previous run
+				serverSocketChannel.bind(UnixDomainSocketAddress.of(path), backlog);
+			}
+			@Override
+			public void release() throws IOException {
+				Files.deleteIfExists(path);
+			}
+		};
+	}
+
+	/**
+	 * Open an unbound listening channel
+	 * @return server socket channel
+	 * @throws IOException
+	 */
+	ServerSocketChannel openServerChannel() throws IOException;
+
+	/**
+	 * Bind a channel opened by this provider
+	 * @param serverSocketChannel listening channel
+	 * @param address configured server address
+	 * @param backlog maximum number of pending connections
+	 * @throws IOException
+	 */
+	void bind(ServerSocketChannel serverSocketChannel, InetSocketAddress address, int backlog) throws IOException;
+	
+	/**
+	 * Release resources once listening channels are closed
+	 * @throws IOException
+	 */
+	default void release() throws IOException {}
+
+}
@@ -0,0 +1,281 @@
+package com.delmesoft.httpserver.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import com.delmesoft.httpserver.HttpServer;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class TimerWheel {
+	
+	public static final long DEFAULT_TICK_MILLIS = 100;
+	public static final int DEFAULT_TICKS_PER_WHEEL = 512;
+	
+	private final long tickMillis;
+	private final int mask;
+	private final Bucket[] wheel;
+	
+	private final Queue<Timeout> pendingTimeouts;
+	private final Queue<Timeout> cancelledTimeouts;
+	private final AtomicInteger size;
+	
+	private final long startTime;
+	private long tick;
+	
+	private volatile Thread thread;
+	
+	public TimerWheel() {
+		this(DEFAULT_TICK_MILLIS, DEFAULT_TICKS_PER_WHEEL);
+	}
+
+	/**
+	 * Create a hashed timer wheel, timeouts expire in O(1) with tick precision
+	 * @param tickMillis duration of a tick
+	 * @param ticksPerWheel number of buckets, rounded up to a power of two
+	 */
+	public TimerWheel(long tickMillis, int ticksPerWheel) {
+		int n = 1;
+		while (n < ticksPerWheel) n <<= 1;
+		this.tickMillis = tickMillis;
+		this.mask = n - 1;
+		this.wheel = new Bucket[n];
+		for (int i = 0; i < n; ++i) {
+			wheel[i] = new Bucket();
+		}
+		this.pendingTimeouts = new ConcurrentLinkedQueue<>();
+		this.cancelledTimeouts = new ConcurrentLinkedQueue<>();
+		this.size = new AtomicInteger();
+		this.startTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Schedule a task, can be called from any thread
+	 * @param task task run by the thread advancing the wheel
+	 * @param delayMillis delay in milliseconds
+	 * @return timeout handle
+	 */
+	public Timeout schedule(Runnable task, long delayMillis) {
+		final Timeout timeout = new Timeout(this, task, System.currentTimeMillis() + delayMillis);
+		size.incrementAndGet();
+		pendingTimeouts.add(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Expire due timeouts, must always be called from the same thread
+	 * @param now current time in milliseconds
+	 * @return number of expired timeouts
+	 */
+	public int advance(long now) {
+		int result = 0;
+		final long lastTick = (now - startTime) / tickMillis;
+		while (tick <= lastTick) {
+			removeCancelled();
+			transferPending();
+			final Bucket bucket = wheel[(int) (tick & mask)];
+			result += bucket.expire();
+			++tick;
+		}
+		return result;
+	}
+
+	private void transferPending() {
+		Timeout timeout;
+		while ((timeout = pendingTimeouts.poll()) != null) {
+			if (timeout.state.get() != Timeout.INIT) {
+				continue; // cancelled before being added
+			}
+			final long ticks = Math.max((timeout.deadline - startTime) / tickMillis, tick);
+			timeout.rounds = (ticks - tick) / wheel.length;
+			wheel[(int) (ticks & mask)].add(timeout);
+		}
+	}
+
+	private void removeCancelled() {
+		Timeout timeout;
+		while ((timeout = cancelledTimeouts.poll()) != null) {
+			if (timeout.bucket != null) {
+				timeout.bucket.remove(timeout);
+			}
+		}
+	}
+
+	/**
+	 * Start a thread advancing this wheel every tick
+	 * @param name thread name
+	 * @param daemon set thread daemon
+	 */
+	public void start(String name, boolean daemon) {
+		final Thread thread = new Thread(() -> {
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					Thread.sleep(tickMillis);
+					advance(System.currentTimeMillis());
+				}
+			} catch (InterruptedException ignore) {
+			}
+		}, name);
+		thread.setDaemon(daemon);
+		this.thread = thread;
+		thread.start();
+	}
+
+	public void stop() {
+		final Thread thread = this.thread;
+		if (thread != null) {
+			thread.interrupt();
+			this.thread = null;
+		}
+	}
+
+	public long getTickMillis() {
+		return tickMillis;
+	}
+
+	/**
+	 * Return number of scheduled timeouts not yet expired or cancelled
+	 * @return pending timeouts
+	 */
+	public int size() {
+		return size.get();
+	}
+
+	public static class Timeout {
+		
+		private static final int INIT = 0, CANCELLED = 1, EXPIRED = 2;
+		
+		private final TimerWheel timerWheel;
+		private final Runnable task;
+		private final long deadline;
+		private final AtomicInteger state;
+		
+		// owned by the thread advancing the wheel
+		private long rounds;
+		private Bucket bucket;
+		private Timeout prev, next;
+
+		private Timeout(TimerWheel timerWheel, Runnable task, long deadline) {
+			this.timerWheel = timerWheel;
+			this.task = task;
+			this.deadline = deadline;
+			this.state = new AtomicInteger(INIT);
+		}
+
+		/**
+		 * Cancel timeout, can be called from any thread
+		 * @return true if cancelled before expiring
+		 */
+		public boolean cancel() {
+			if (state.compareAndSet(INIT, CANCELLED)) {
+				timerWheel.size.decrementAndGet();
+				timerWheel.cancelledTimeouts.add(this);
+				return true;
+			}
+			return false;
+		}
+
+		public boolean isCancelled() {
+			return state.get() == CANCELLED;
+		}
+
+		public boolean isExpired() {
+			return state.get() == EXPIRED;
+		}
+
+		public long getDeadline() {
+			return deadline;
+		}
+
+		private void expire() {
+			if (state.compareAndSet(INIT, EXPIRED)) {
+				timerWheel.size.decrementAndGet();
+				try {
+					task.run();
+				} catch (Exception e) {
+					HttpServer.log.log(Level.WARNING, "Error running timeout task", e);
+				}
+			}
+		}
+
+	}
+
+	private static class Bucket {
+		
+		private Timeout head, tail;
+
+		void add(Timeout timeout) {
+			timeout.bucket = this;
+			if (head == null) {
+				head = tail = timeout;
+			} else {
+				tail.next = timeout;
+				timeout.prev = tail;
+				tail = timeout;
+			}
+		}
+
+		void remove(Timeout timeout) {
+			if (timeout.prev != null) {
+				timeout.prev.next = timeout.next;
+			} else {
+				head = timeout.next;
+			}
+			if (timeout.next != null) {
+				timeout.next.prev = timeout.prev;
+			} else {
+				tail = timeout.prev;
+			}
+			timeout.prev = timeout.next = null;
+			timeout.bucket = null;
+		}
+
+		int expire() {
+			int result = 0;
+			Timeout timeout = head;
+			while (timeout != null) {
+				final Timeout next = timeout.next;
+				if (timeout.rounds <= 0) { // due within this tick
+					remove(timeout);
+					timeout.expire();
+					++result;
+				} else {
+					--timeout.rounds;
+				}
+				timeout = next;
+			}
+			return result;
+		}
+
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.delmesoft.httpserver.utils;
+
+import java.nio.ByteBuffer;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+class VectorDelimiterScanner extends DelimiterScanner {
+	
+	private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED; // 32 or 64 bytes on AVX2 / AVX-512
+	private static final VectorSpecies<Byte> SPECIES_128 = ByteVector.SPECIES_128;   // short header lines
+	
+	@Override
+	public int indexOf(byte[] b, int from, int to, byte value) {
+		int i = from;
+		final int length = SPECIES.length();
+		for (; i <= to - length; i += length) {
+			final int n = ByteVector.fromArray(SPECIES, b, i).eq(value).firstTrue();
+			if (n < length) {
+				return i + n;
+			}
+		}
+		if (length > 16) {
+			for (; i <= to - 16; i += 16) {
+				final int n = ByteVector.fromArray(SPECIES_128, b, i).eq(value).firstTrue();
+				if (n < 16) {
+					return i + n;
+				}
+			}
+		}
+		return SWAR.indexOf(b, i, to, value); // tail
+	}
+	
+	@Override
+	public int indexOf(ByteBuffer buffer, int from, int to, byte value) {
+		if (buffer.hasArray()) {
+			final int offset = buffer.arrayOffset();
+			final int i = indexOf(buffer.array(), offset + from, offset + to, value);
+			return i < 0 ? i : i - offset;
+		}
+		return SWAR.indexOf(buffer, from, to, value); // direct buffers are read by long words
+	}
+	
+	@Override
+	public String getName() {
+		return "vector-" + SPECIES.vectorBitSize();
+	}
+	
+}
@@ -0,0 +1,109 @@
+package com.delmesoft.httpserver.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class VirtualThreads {
+	
+	private static final MethodHandle OF_VIRTUAL;   // Thread.ofVirtual()
+	private static final MethodHandle NAME;         // Thread.Builder.name(String)
+	private static final MethodHandle UNSTARTED;    // Thread.Builder.unstarted(Runnable)
+	private static final MethodHandle IS_VIRTUAL;   // Thread.isVirtual()
+	
+	static {
+		MethodHandle ofVirtual = null, name = null, unstarted = null, isVirtual = null;
+		try { // resolved reflectively so the server still runs on JVMs without virtual threads
+			final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			final Class<?> ofVirtualBuilder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+			ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualBuilder));
+			name = lookup.findVirtual(builder, "name", MethodType.methodType(builder, String.class));
+			unstarted = lookup.findVirtual(builder, "unstarted", MethodType.methodType(Thread.class, Runnable.class));
+			isVirtual = lookup.findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+		} catch (Throwable e) {
+			ofVirtual = name = unstarted = isVirtual = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		NAME = name;
+		UNSTARTED = unstarted;
+		IS_VIRTUAL = isVirtual;
+	}
+
+	/**
+	 * Check if running JVM supports virtual threads
+	 * @return true if supported
+	 */
+	public static boolean isSupported() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * Create a new unstarted virtual thread
+	 * @param name thread name
+	 * @param task task to run
+	 * @return virtual thread
+	 */
+	public static Thread newThread(String name, Runnable task) {
+		if (!isSupported()) {
+			throw new UnsupportedOperationException("Virtual threads are not supported by this JVM");
+		}
+		try {
+			Object builder = OF_VIRTUAL.invoke();
+			builder = NAME.invoke(builder, name);
+			return (Thread) UNSTARTED.invoke(builder, task);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Check if a thread is virtual
+	 * @param thread thread to check
+	 * @return true if virtual, always false on JVMs without virtual threads
+	 */
+	public static boolean isVirtual(Thread thread) {
+		if (IS_VIRTUAL == null) {
+			return false;
+		}
+		try {
+			return (boolean) IS_VIRTUAL.invoke(thread);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,187 @@
+package com.delmesoft.httpserver.utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class WorkerPool implements Executor {
+	
+	private static final AtomicInteger ids = new AtomicInteger();
+	
+	private final String name;
+	private final ThreadPoolExecutor threadPoolExecutor;
+	
+	private final LongAdder rejectedCount;
+	private final LongAdder executedCount;
+	private final LongAdder queueWaitNanos;
+	private final AtomicLong maxQueueWaitNanos;
+	
+	/**
+	 * Create a bounded worker pool
+	 * @param maxThreads maximum number of worker threads
+	 * @param queueCapacity maximum number of tasks waiting for a worker, 0 to reject tasks as soon as every worker is busy
+	 */
+	public WorkerPool(int maxThreads, int queueCapacity) {
+		this(WorkerPool.class.getSimpleName() + "-" + ids.incrementAndGet(), maxThreads, queueCapacity);
+	}
+
+	/**
+	 * Create a bounded worker pool
+	 * @param name thread name prefix
+	 * @param maxThreads maximum number of worker threads
+	 * @param queueCapacity maximum number of tasks waiting for a worker, 0 to reject tasks as soon as every worker is busy
+	 */
+	public WorkerPool(String name, int maxThreads, int queueCapacity) {
+		this.name = name;
+		this.rejectedCount = new LongAdder();
+		this.executedCount = new LongAdder();
+		this.queueWaitNanos = new LongAdder();
+		this.maxQueueWaitNanos = new AtomicLong();
+		final AtomicInteger threadIds = new AtomicInteger();
+		final ThreadFactory threadFactory = (runnable) -> new Thread(runnable, name + "-" + threadIds.incrementAndGet());
+		final BlockingQueue<Runnable> queue = queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>(); // hands tasks to idle workers only
+		this.threadPoolExecutor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, queue, threadFactory, new ThreadPoolExecutor.AbortPolicy());
+		this.threadPoolExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Execute task or throw RejectedExecutionException if all workers are busy and queue is full
+	 */
+	@Override
+	public void execute(Runnable command) {
+		final long queuedAt = System.nanoTime();
+		try {
+			threadPoolExecutor.execute(() -> {
+				final long wait = System.nanoTime() - queuedAt;
+				queueWaitNanos.add(wait);
+				maxQueueWaitNanos.accumulateAndGet(wait, Math::max);
+				executedCount.increment();
+				command.run();
+			});
+		} catch (RejectedExecutionException e) {
+			rejectedCount.increment();
+			throw e;
+		}
+	}
+
+	public void shutdown() {
+		threadPoolExecutor.shutdown();
+	}
+	
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Return number of tasks waiting for a worker
+	 * @return queue depth
+	 */
+	public int getQueueDepth() {
+		return threadPoolExecutor.getQueue().size();
+	}
+	
+	public int getQueueCapacity() {
+		return threadPoolExecutor.getQueue().size() + threadPoolExecutor.getQueue().remainingCapacity();
+	}
+
+	public int getActiveCount() {
+		return threadPoolExecutor.getActiveCount();
+	}
+	
+	public int getMaxThreads() {
+		return threadPoolExecutor.getMaximumPoolSize();
+	}
+
+	/**
+	 * Return share of threads and queue slots in use, a bulkhead rejects work at 1
+	 * @return saturation between 0 and 1
+	 */
+	public double getSaturation() {
+		final int capacity = getMaxThreads() + getQueueCapacity();
+		return capacity == 0 ? 0 : (double) (getActiveCount() + getQueueDepth()) / capacity;
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+	
+	public long getExecutedCount() {
+		return executedCount.sum();
+	}
+
+	/**
+	 * Return mean time tasks waited in queue before running
+	 * @return mean queue wait in nanoseconds
+	 */
+	public long getMeanQueueWaitNanos() {
+		final long count = executedCount.sum();
+		return count == 0 ? 0 : queueWaitNanos.sum() / count;
+	}
+
+	/**
+	 * Return longest time a task waited in queue before running
+	 * @return max queue wait in nanoseconds
+	 */
+	public long getMaxQueueWaitNanos() {
+		return maxQueueWaitNanos.get();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("WorkerPool [name=");
+		builder.append(name);
+		builder.append(", active=");
+		builder.append(getActiveCount());
+		builder.append(", queueDepth=");
+		builder.append(getQueueDepth());
+		builder.append(", saturation=");
+		builder.append(String.format("%.2f", getSaturation()));
+		builder.append(", rejected=");
+		builder.append(getRejectedCount());
+		builder.append(", meanQueueWaitNanos=");
+		builder.append(getMeanQueueWaitNanos());
+		builder.append(", maxQueueWaitNanos=");
+		builder.append(getMaxQueueWaitNanos());
+		builder.append("]");
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,159 @@
+package com.delmesoft.httpserver;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.delmesoft.httpserver.utils.DelimiterScanner;
+import com.delmesoft.httpserver.utils.RequestParser;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class DelimiterScannerBenchmark {
+	
+	private static final String[][] REQUESTS = {
+		{ "browser", "GET /products/shoes/running?color=blue&size=42&sort=price_asc HTTP/1.1\r\n"
+			+ "Host: shop.example.com\r\n"
+			+ "Connection: keep-alive\r\n"
+			+ "sec-ch-ua: \"Chromium\";v=\"124\", \"Google Chrome\";v=\"124\", \"Not-A.Brand\";v=\"99\"\r\n"
+			+ "sec-ch-ua-mobile: ?0\r\n"
+			+ "sec-ch-ua-platform: \"Windows\"\r\n"
+			+ "Upgrade-Insecure-Requests: 1\r\n"
+			+ "User-Agent: Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36\r\n"
+			+ "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8\r\n"
+			+ "Sec-Fetch-Site: same-origin\r\n"
+			+ "Sec-Fetch-Mode: navigate\r\n"
+			+ "Sec-Fetch-User: ?1\r\n"
+			+ "Sec-Fetch-Dest: document\r\n"
+			+ "Referer: https://shop.example.com/products/shoes?color=blue\r\n"
+			+ "Accept-Encoding: gzip, deflate, br, zstd\r\n"
+			+ "Accept-Language: en-US,en;q=0.9,es;q=0.8\r\n"
+			+ "Cookie: _ga=GA1.2.1234567890.1700000000; _gid=GA1.2.987654321.1700000000; session=3f9a8c7e6d5b4a39281706f5e4d3c2b1; cart=7; theme=dark\r\n"
+			+ "\r\n" },
+		{ "curl", "GET /api/v1/status HTTP/1.1\r\n"
+			+ "Host: localhost:8080\r\n"
+			+ "User-Agent: curl/8.5.0\r\n"
+			+ "Accept: */*\r\n"
+			+ "\r\n" },
+		{ "health check", "GET /health HTTP/1.1\r\n"
+			+ "Host: 10.0.3.17:8080\r\n"
+			+ "Connection: close\r\n"
+			+ "User-Agent: ELB-HealthChecker/2.0\r\n"
+			+ "Accept-Encoding: gzip, compressed\r\n"
+			+ "\r\n" },
+	};
+	
+	private static volatile Object sink;
+
+	public static void main(String[] args) throws Exception {
+		
+		final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		
+		final List<DelimiterScanner> scanners = new ArrayList<>();
+		scanners.add(DelimiterScanner.SCALAR);
+		scanners.add(DelimiterScanner.SWAR);
+		if (DelimiterScanner.VECTOR != null) {
+			scanners.add(DelimiterScanner.VECTOR);
+		} else {
+			System.out.println("vector scanner not available, run with --add-modules jdk.incubator.vector");
+		}
+		System.out.printf("default scanner: %s, iterations: %d\n", DelimiterScanner.get(), iterations);
+		
+		verify(scanners);
+		
+		for (int i = 0; i < 2; ++i) { // first round warms up
+			final boolean print = i == 1;
+			for (String[] request : REQUESTS) {
+				final byte[] bytes = request[1].getBytes(StandardCharsets.US_ASCII);
+				final ByteBuffer heap = ByteBuffer.wrap(bytes);
+				final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+				if (print) {
+					System.out.printf("\n%s (%d bytes)\n", request[0], bytes.length);
+				}
+				for (DelimiterScanner scanner : scanners) {
+					final RequestParser parser = new RequestParser(new HttpHeaders(), scanner);
+					run(scanner + " heap", bytes.length, iterations, print, () -> parse(parser, heap));
+					run(scanner + " direct", bytes.length, iterations, print, () -> parse(parser, direct));
+				}
+			}
+		}
+		
+	}
+	
+	private static void parse(RequestParser parser, ByteBuffer buffer) throws Exception {
+		parser.reset();
+		buffer.clear();
+		parser.parse(buffer);
+		sink = parser.getTarget();
+	}
+	
+	/**
+	 * Check that every scanner finds the same index on random bytes, ranges and alignments
+	 */
+	private static void verify(List<DelimiterScanner> scanners) {
+		final Random random = new Random(42);
+		final byte[] b = new byte[300];
+		final ByteBuffer direct = ByteBuffer.allocateDirect(b.length);
+		for (int i = 0; i < 100_000; ++i) {
+			for (int j = 0; j < b.length; ++j) {
+				b[j] = (byte) (random.nextInt(8) == 0 ? 10 : 32 + random.nextInt(224)); // includes bytes with the high bit set
+			}
+			direct.clear();
+			direct.put(b);
+			final int from = random.nextInt(b.length), to = from + random.nextInt(b.length - from + 1);
+			final byte value = random.nextBoolean() ? 10 : b[random.nextInt(b.length)];
+			final int expected = DelimiterScanner.SCALAR.indexOf(b, from, to, value);
+			for (DelimiterScanner scanner : scanners) {
+				if (scanner.indexOf(b, from, to, value) != expected || scanner.indexOf(direct, from, to, value) != expected) {
+					throw new IllegalStateException(scanner + " mismatch, from " + from + " to " + to + " value " + value);
+				}
+			}
+		}
+	}
+	
+	private interface Task {
+		void run() throws Exception;
+	}
+	
+	private static void run(String name, int length, int iterations, boolean print, Task task) throws Exception {
+		final long t = System.nanoTime();
+		for (int i = 0; i < iterations; ++i) {
+			task.run();
+		}
+		final long elapsed = System.nanoTime() - t;
+		if (print) {
+			System.out.printf("  %-18s %8.1f ns/request %8.1f MB/s\n", name, 
+					(double) elapsed / iterations, (double) length * iterations / (elapsed / 1e9) / (1 << 20));
+		}
+	}
+
+}
@@ -0,0 +1,151 @@
+package com.delmesoft.httpserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+
+import com.delmesoft.httpserver.HttpResponse.Status;
+import com.delmesoft.httpserver.HttpServerImpl.Engine;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class ExpectContinueTest {
+	
+	private static final int TIMEOUT = 5000;
+	private static final String FORM = "application/x-www-form-urlencoded";
+
+	/**
+	 * Send uploads announced with Expect: 100-continue, small enough to fit the connection buffer,
+	 * and check both engines answer 100 Continue or the refusal without waiting for the body
+	 */
+	public static void main(String[] args) throws Exception {
+		
+		for (Engine engine : new Engine[] { Engine.NIO, Engine.BLOCKING }) {
+			final HttpServerImpl httpServer = new HttpServerImpl("127.0.0.1", 0);
+			httpServer.setEngine(engine);
+			httpServer.setExecutor(Executors.newCachedThreadPool(runnable -> {
+				final Thread thread = new Thread(runnable);
+				thread.setDaemon(true); // the server never shuts its executor down
+				return thread;
+			}));
+			httpServer.setHttpListener(new HttpListener() {
+				@Override
+				public HttpResponse onExpectContinue(HttpRequest httpRequest) throws Exception {
+					return httpRequest.getPath().equals("/denied") ? HttpResponse.build(Status.UNAUTHORIZED) : null;
+				}
+				@Override
+				public HttpResponse onHttpRequest(HttpRequest httpRequest) throws Exception {
+					final String result = FORM.equals(httpRequest.getHeader("Content-Type")) 
+							? "a=" + httpRequest.getParameters().get("a") : "length=" + httpRequest.getContentAsString().length();
+					return HttpResponse.build(Status.OK, "text/plain", result.getBytes());
+				}
+			});
+			httpServer.connect();
+			try {
+				final InetSocketAddress address = (InetSocketAddress) httpServer.getLocalAddress();
+				for (int length : new int[] { 5, 500, 50_000 }) {
+					check(engine, address, "/upload", null, length, true);
+					check(engine, address, "/denied", null, length, false);
+					check(engine, address, "/upload", FORM, length, true);
+					check(engine, address, "/denied", FORM, length, false);
+				}
+			} finally {
+				httpServer.disconnect();
+			}
+			System.out.printf("%s: ok\n", engine);
+		}
+		
+	}
+	
+	private static void check(Engine engine, InetSocketAddress address, String path, String contentType, int length, boolean accepted) throws IOException {
+		try (Socket socket = new Socket()) {
+			socket.connect(address, TIMEOUT);
+			socket.setSoTimeout(TIMEOUT);
+			final OutputStream os = socket.getOutputStream();
+			final InputStream is = socket.getInputStream();
+			os.write(("POST " + path + " HTTP/1.1\r\nHost: localhost\r\nExpect: 100-continue\r\n" 
+					+ (contentType != null ? "Content-Type: " + contentType + "\r\n" : "") 
+					+ "Content-Length: " + length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+			os.flush();
+			final String request = engine + " " + path + " " + contentType + " " + length;
+			final String interim = readHead(is);
+			if (!accepted) {
+				assertTrue(interim.startsWith("HTTP/1.1 401"), request + ": expected 401, got " + interim);
+				return;
+			}
+			assertTrue(interim.startsWith("HTTP/1.1 100"), request + ": expected 100 Continue, got " + interim);
+			final byte[] body = new byte[length];
+			Arrays.fill(body, (byte) 'x');
+			body[0] = 'a';
+			body[1] = '=';
+			os.write(body);
+			os.flush();
+			final String head = readHead(is);
+			assertTrue(head.startsWith("HTTP/1.1 200"), request + ": expected 200, got " + head);
+			final String content = new String(is.readNBytes(contentLength(head)), StandardCharsets.US_ASCII);
+			final String expected = contentType != null ? "a=" + new String(body, 2, length - 2, StandardCharsets.US_ASCII) : "length=" + length;
+			assertTrue(content.equals(expected), request + ": unexpected body " + content);
+		}
+	}
+	
+	private static String readHead(InputStream is) throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		int b;
+		while ((b = is.read()) > -1) {
+			baos.write(b);
+			if (baos.size() >= 4 && baos.toString(StandardCharsets.US_ASCII.name()).endsWith("\r\n\r\n")) {
+				break;
+			}
+		}
+		return baos.toString(StandardCharsets.US_ASCII.name());
+	}
+	
+	private static int contentLength(String head) {
+		for (String line : head.split("\r\n")) {
+			if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+				return Integer.parseInt(line.substring(15).trim());
+			}
+		}
+		return 0;
+	}
+	
+	private static void assertTrue(boolean condition, String message) {
+		if (!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+}
@@ -0,0 +1,195 @@
+package com.delmesoft.httpserver;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.delmesoft.httpserver.HttpResponse.Status;
+import com.delmesoft.httpserver.HttpServerImpl.Engine;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class IdleConnectionFootprintTest {
+
+	private static final byte[] REQUEST = "GET /footprint HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+	private static final int CONNECTIONS_PER_ADDRESS = 20_000; // stay below the ephemeral port range
+
+	/**
+	 * Open idle keep-alive connections, each after one request, and check the memory the server keeps
+	 * for them beyond a bare registered socket. Needs about two file descriptors per connection (ulimit -n)
+	 * @param args [connections (50000)] [budget in bytes per idle connection (1024)]
+	 */
+	public static void main(String[] args) throws Exception {
+
+		final int connections = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+		final int budget = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+
+		System.out.printf("Opening %d idle loopback connections\n", connections);
+
+		final long bare = bareFootprint(connections);
+		final long server = serverFootprint(connections);
+		final long perConnection = (server - bare) / connections;
+
+		System.out.printf("Bare registered socket: %d bytes/connection (client and server side)\n", bare / connections);
+		System.out.printf("HTTP server:            %d bytes/connection (client and server side)\n", server / connections);
+		System.out.printf("Idle connection state:  %d bytes/connection, budget %d\n", perConnection, budget);
+
+		if (perConnection > budget) {
+			throw new AssertionError("Idle connection footprint " + perConnection + " exceeds budget of " + budget + " bytes");
+		}
+
+	}
+
+	/**
+	 * Memory taken by accepted channels registered with a selector and their clients, without any HTTP state
+	 */
+	private static long bareFootprint(int connections) throws Exception {
+		try (Selector selector = Selector.open(); ServerSocketChannel serverSocketChannel = ServerSocketChannel.open()) {
+			serverSocketChannel.bind(new InetSocketAddress("127.0.0.1", 0), 1024);
+			final List<SocketChannel> accepted = new ArrayList<>(connections);
+			final List<SocketChannel> clients = new ArrayList<>(connections);
+			final long before = usedMemory();
+			try {
+				for (int i = 0; i < connections; ++i) {
+					clients.add(connect(i, (InetSocketAddress) serverSocketChannel.getLocalAddress()));
+					final SocketChannel socketChannel = serverSocketChannel.accept();
+					socketChannel.configureBlocking(false);
+					socketChannel.register(selector, SelectionKey.OP_READ);
+					accepted.add(socketChannel);
+				}
+				return usedMemory() - before;
+			} finally {
+				close(clients);
+				close(accepted);
+			}
+		}
+	}
+
+	private static long serverFootprint(int connections) throws Exception {
+		final HttpServerImpl httpServer = new HttpServerImpl("127.0.0.1", 0);
+		httpServer.setEngine(Engine.NIO);
+		httpServer.setIdleTimeout(0); // keep idle connections open
+		httpServer.setBacklog(1024);
+		httpServer.setHttpListener(new HttpListener() {
+			@Override
+			public HttpResponse onHttpRequest(HttpRequest httpRequest) throws Exception {
+				return HttpResponse.build(Status.OK, "text/plain", "ok".getBytes());
+			}
+			@Override
+			public void onHttpResponse(HttpResponse httpResponse) throws Exception {
+				httpResponse.write();
+			}
+		});
+		httpServer.connect();
+		final List<SocketChannel> clients = new ArrayList<>(connections);
+		try {
+			final InetSocketAddress address = (InetSocketAddress) httpServer.getLocalAddress();
+			final ByteBuffer buffer = ByteBuffer.allocate(1024);
+			exchange(connect(0, address), buffer).close(); // warm up worker threads and buffer pools
+			final long before = usedMemory();
+			for (int i = 0; i < connections; ++i) {
+				clients.add(exchange(connect(i, address), buffer));
+			}
+			while (httpServer.getHttpClientCount() < connections) {
+				Thread.sleep(10);
+			}
+			return usedMemory() - before;
+		} finally {
+			close(clients);
+			httpServer.disconnect();
+		}
+	}
+
+	private static SocketChannel connect(int index, InetSocketAddress address) throws IOException {
+		final SocketChannel socketChannel = SocketChannel.open();
+		final byte[] local = { 127, 0, 0, (byte) (1 + index / CONNECTIONS_PER_ADDRESS) };
+		socketChannel.bind(new InetSocketAddress(InetAddress.getByAddress(local), 0));
+		socketChannel.connect(address);
+		return socketChannel;
+	}
+
+	/**
+	 * Send a request and read its whole response, so the connection is left idle
+	 */
+	private static SocketChannel exchange(SocketChannel socketChannel, ByteBuffer buffer) throws IOException {
+		final ByteBuffer request = ByteBuffer.wrap(REQUEST);
+		while (request.hasRemaining()) {
+			socketChannel.write(request);
+		}
+		buffer.clear();
+		while (!isComplete(buffer)) {
+			if (socketChannel.read(buffer) < 0) {
+				throw new IOException("Connection closed");
+			}
+		}
+		return socketChannel;
+	}
+
+	private static boolean isComplete(ByteBuffer buffer) {
+		final String response = new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+		return response.endsWith("\r\n\r\nok");
+	}
+
+	private static void close(List<SocketChannel> channels) {
+		for (SocketChannel socketChannel : channels) {
+			try { socketChannel.close(); } catch (Exception ignore) {}
+		}
+		channels.clear();
+	}
+
+	/**
+	 * Return heap plus direct memory in use after garbage collection
+	 */
+	private static long usedMemory() throws InterruptedException {
+		for (int i = 0; i < 3; ++i) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if ("direct".equals(pool.getName())) {
+				used += pool.getMemoryUsed();
+			}
+		}
+		return used;
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.delmesoft.httpserver;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.delmesoft.httpserver.utils.LineReader;
+import com.delmesoft.httpserver.utils.RequestParser;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class RequestParserBenchmark {
+	
+	private static final byte[] REQUEST = ("GET /api/v1/items/42?fields=name,price&lang=en HTTP/1.1\r\n"
+			+ "Host: localhost:8080\r\n"
+			+ "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36\r\n"
+			+ "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n"
+			+ "Accept-Encoding: gzip, deflate, br\r\n"
+			+ "Accept-Language: en-US,en;q=0.9\r\n"
+			+ "Cookie: session=0123456789abcdef; theme=dark\r\n"
+			+ "Connection: keep-alive\r\n"
+			+ "\r\n").getBytes(StandardCharsets.US_ASCII);
+	
+	private static volatile Object sink;
+
+	public static void main(String[] args) throws Exception {
+		
+		final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		
+		final RequestParser parser = new RequestParser();
+		final ByteBuffer heap = ByteBuffer.wrap(REQUEST);
+		final ByteBuffer direct = ByteBuffer.allocateDirect(REQUEST.length).put(REQUEST);
+		final PushbackInputStream pushback = new PushbackInputStream(new ByteArrayInputStream(new byte[0]), RequestParser.BUFFER_SIZE);
+		
+		System.out.printf("request: %d bytes, iterations: %d\n", REQUEST.length, iterations);
+		
+		for (int i = 0; i < 2; ++i) { // first round warms up
+			final boolean print = i == 1;
+			run("LineReader (before)", iterations, print, () -> sink = legacy(new ByteArrayInputStream(REQUEST)));
+			run("RequestParser heap", iterations, print, () -> {
+				parser.reset();
+				heap.clear();
+				parser.parse(heap);
+				sink = parser.getTarget();
+			});
+			run("RequestParser direct", iterations, print, () -> {
+				parser.reset();
+				direct.clear();
+				parser.parse(direct);
+				sink = parser.getTarget();
+			});
+			run("RequestParser 64 B reads", iterations, print, () -> {
+				parser.reset();
+				for (int from = 0; from < REQUEST.length; from += 64) { // partial reads resumed
+					heap.limit(Math.min(from + 64, REQUEST.length)).position(from);
+					parser.parse(heap);
+				}
+				sink = parser.getTarget();
+			});
+			run("RequestParser stream", iterations, print, () -> {
+				pushback.unread(REQUEST);
+				parser.read(pushback);
+				sink = parser.getTarget();
+			});
+		}
+		
+	}
+	
+	private interface Task {
+		void run() throws Exception;
+	}
+	
+	private static void run(String name, int iterations, boolean print, Task task) throws Exception {
+		final long t = System.nanoTime();
+		for (int i = 0; i < iterations; ++i) {
+			task.run();
+		}
+		final long elapsed = System.nanoTime() - t;
+		if (print) {
+			System.out.printf("%-26s %8.1f ns/request %8.1f MB/s\n", name, 
+					(double) elapsed / iterations, (double) REQUEST.length * iterations / (elapsed / 1e9) / (1 << 20));
+		}
+	}
+	
+	/**
+	 * Request line and header decoding as done before RequestParser, one read() per byte
+	 */
+	private static Map<String, String> legacy(InputStream is) throws Exception {
+		final LineReader lineReader = new LineReader();
+		final Map<String, String> headers = new HashMap<>();
+		String line = lineReader.readLine(is);
+		int j, i, index = 0;
+		final String[] requestParam = new String[2];
+		for (j = 0, i = 0; i < line.length(); ++i) {
+			if (line.charAt(i) == 32) {
+				requestParam[index++] = line.substring(j, i);
+				j = i + 1;
+			}
+		}
+		headers.put(requestParam[0], line.substring(j, i));
+		while ((line = lineReader.readLine(is)) != null && (index = line.indexOf(':')) > -1) {
+			headers.put(line.substring(0, index), line.substring(index + 2));
+		}
+		return headers;
+	}
+
+}
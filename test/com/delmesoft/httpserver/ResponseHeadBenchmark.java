@@ -0,0 +1,148 @@
+package com.delmesoft.httpserver;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.List;
+
+import com.delmesoft.httpserver.HttpResponse.Status;
+import com.delmesoft.httpserver.utils.HeadEncoder;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class ResponseHeadBenchmark {
+	
+	private static volatile Object sink;
+
+	public static void main(String[] args) throws Exception {
+		
+		final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		
+		final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final NullOutputStream os = new NullOutputStream();
+		final HttpResponse response = response();
+		final HttpResponse legacyResponse = response(); // gets Date and Content-Length added to its headers
+		
+		System.out.printf("head: %d bytes, iterations: %d\n", encoder(response).size(), iterations);
+		
+		for (int i = 0; i < 2; ++i) { // first round warms up
+			final boolean print = i == 1;
+			run("String.format (before)", iterations, print, threadMXBean, () -> legacy(legacyResponse, os));
+			run("HeadEncoder", iterations, print, threadMXBean, () -> encoder(response).writeTo(os));
+			run("HttpResponse.write", iterations, print, threadMXBean, () -> response.write(os));
+		}
+		sink = os.count;
+		
+	}
+	
+	private static HttpResponse response() {
+		final HttpResponse response = HttpResponse.build(Status.OK);
+		response.addHeader("Content-Type", "application/json");
+		response.addHeader("Cache-Control", "no-cache");
+		response.addHeader("Connection", "keep-alive");
+		response.addCookie(new Cookie("session", "0123456789abcdef", "/", 3600L));
+		return response;
+	}
+	
+	private interface Task {
+		void run() throws Exception;
+	}
+	
+	private static void run(String name, int iterations, boolean print, com.sun.management.ThreadMXBean threadMXBean, Task task) throws Exception {
+		final long id = Thread.currentThread().getId();
+		final long allocated = threadMXBean.getThreadAllocatedBytes(id);
+		final long t = System.nanoTime();
+		for (int i = 0; i < iterations; ++i) {
+			task.run();
+		}
+		final long elapsed = System.nanoTime() - t;
+		final long bytes = threadMXBean.getThreadAllocatedBytes(id) - allocated;
+		if (print) {
+			System.out.printf("%-24s %8.1f ns/response %8.1f B/response\n", name, 
+					(double) elapsed / iterations, (double) bytes / iterations);
+		}
+	}
+	
+	private static HeadEncoder encoder(HttpResponse response) {
+		final HeadEncoder head = new HeadEncoder().statusLine(response.getCode(), response.getMessage());
+		for (Cookie cookie : response.getCookies()) {
+			head.cookie(cookie);
+		}
+		final HttpHeaders headers = response.getHttpHeaders();
+		for (int i = 0; i < headers.size(); ++i) {
+			head.header(headers.getName(i), headers.getValue(i));
+		}
+		return head.date().header("Content-Length", response.getContentLength()).end();
+	}
+	
+	/**
+	 * Response head encoding as done before HeadEncoder
+	 */
+	private static void legacy(HttpResponse response, OutputStream os) throws Exception {
+		String line = String.format("%s %d %s\r\n", Constants.PROTOCOL, response.getCode(), response.getMessage());
+		os.write(line.getBytes());
+		final List<Cookie> cookies = response.getCookies();
+		if (cookies.size() > 0) {
+			StringBuilder sb = new StringBuilder();
+			for (Cookie cookie : cookies) {
+				sb.append(String.format("Set-Cookie: %s\r\n", cookie));
+			}
+			os.write(sb.toString().getBytes());
+		}
+		final HttpHeaders headers = response.getHttpHeaders();
+		synchronized (Constants.DATE_FORMAT) {
+			headers.set("Date", Constants.DATE_FORMAT.format(new Date()));
+		}
+		headers.set("Content-Length", Integer.toString(response.getContentLength()));
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < headers.size(); ++i) {
+			sb.append(headers.getName(i)).append(": ").append(headers.getValue(i)).append("\r\n");
+		}
+		os.write(sb.toString().getBytes());
+		os.write(new byte[] { 13, 10 });
+	}
+	
+	private static class NullOutputStream extends OutputStream {
+		
+		long count;
+		
+		@Override
+		public void write(int b) {
+			++count;
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+		
+	}
+
+}
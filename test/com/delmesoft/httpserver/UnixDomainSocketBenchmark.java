@@ -0,0 +1,200 @@
+package com.delmesoft.httpserver;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import com.delmesoft.httpserver.HttpResponse.Status;
+import com.delmesoft.httpserver.HttpServerImpl.Engine;
+import com.delmesoft.httpserver.utils.ServerChannelProvider;
+
+/*
+ * Copyright (c) 2020, Sergio S.- sergi.ss4@gmail.com http://sergiosoriano.com
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *    	
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. 
+ */
+public class UnixDomainSocketBenchmark {
+	
+	private static final byte[] REQUEST = "GET /bench HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] BODY = "Fast and lightweight HTTP Server".getBytes(StandardCharsets.US_ASCII);
+
+	public static void main(String[] args) throws Exception {
+		
+		final int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+		final int connections = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		
+		final Path path = Files.createTempDirectory("http-server").resolve("http.sock");
+		
+		HttpServerImpl tcpServer = newServer(ServerChannelProvider.DEFAULT);
+		HttpServerImpl udsServer = newServer(ServerChannelProvider.newUnixDomainInstance(path));
+		
+		try {
+			tcpServer.connect();
+			udsServer.connect();
+			
+			final SocketAddress tcpAddress = tcpServer.getLocalAddress();
+			final SocketAddress udsAddress = udsServer.getLocalAddress();
+			
+			System.out.printf("requests: %d, connections: %d\n", requests, connections);
+			
+			for (int i = 0; i < 2; ++i) { // first round warms up
+				final boolean print = i == 1;
+				latency("TCP", tcpAddress, requests, print);
+				latency("UDS", udsAddress, requests, print);
+				throughput("TCP", tcpAddress, requests, connections, print);
+				throughput("UDS", udsAddress, requests, connections, print);
+			}
+		} finally {
+			tcpServer.disconnect();
+			udsServer.disconnect();
+			Files.deleteIfExists(path.getParent());
+		}
+		
+	}
+	
+	private static HttpServerImpl newServer(ServerChannelProvider serverChannelProvider) {
+		HttpServerImpl httpServer = new HttpServerImpl("127.0.0.1", 0);
+		httpServer.setEngine(Engine.NIO);
+		httpServer.setServerChannelProvider(serverChannelProvider);
+		httpServer.setMaxRequestsPerConnection(Integer.MAX_VALUE);
+		httpServer.setHttpListener(new HttpListener() {
+			@Override
+			public HttpResponse onHttpRequest(HttpRequest httpRequest) throws Exception {
+				return HttpResponse.build(Status.OK, "text/plain", BODY);
+			}
+			@Override
+			public void onHttpResponse(HttpResponse httpResponse) throws Exception {
+				httpResponse.write();
+			}
+		});
+		return httpServer;
+	}
+	
+	private static void latency(String name, SocketAddress address, int requests, boolean print) throws IOException {
+		final long[] samples = new long[requests];
+		try (Connection connection = new Connection(address)) {
+			for (int i = 0; i < requests; ++i) {
+				final long t = System.nanoTime();
+				connection.exchange();
+				samples[i] = System.nanoTime() - t;
+			}
+		}
+		if (print) {
+			Arrays.sort(samples);
+			final double mean = Arrays.stream(samples).average().orElse(0);
+			System.out.printf("%s latency: mean %.1f us, p50 %.1f us, p99 %.1f us\n", name, 
+					mean / 1000.0, samples[requests / 2] / 1000.0, samples[(int) (requests * 0.99)] / 1000.0);
+		}
+	}
+	
+	private static void throughput(String name, SocketAddress address, int requests, int connections, boolean print) throws Exception {
+		final Thread[] threads = new Thread[connections];
+		final long t = System.nanoTime();
+		for (int i = 0; i < connections; ++i) {
+			threads[i] = new Thread(() -> {
+				try (Connection connection = new Connection(address)) {
+					for (int j = 0; j < requests; ++j) {
+						connection.exchange();
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		final double seconds = (System.nanoTime() - t) / 1e9;
+		if (print) {
+			System.out.printf("%s throughput: %.0f req/s\n", name, (double) requests * connections / seconds);
+		}
+	}
+	
+	/**
+	 * Keep-alive client connection reading responses with Content-Length
+	 */
+	private static class Connection implements AutoCloseable {
+		
+		private final SocketChannel socketChannel;
+		private final ByteBuffer buffer;
+		
+		Connection(SocketAddress address) throws IOException {
+			socketChannel = SocketChannel.open(address);
+			if (address instanceof InetSocketAddress) {
+				socketChannel.socket().setTcpNoDelay(true);
+			}
+			buffer = ByteBuffer.allocate(4096);
+		}
+		
+		void exchange() throws IOException {
+			final ByteBuffer request = ByteBuffer.wrap(REQUEST);
+			while (request.hasRemaining()) {
+				socketChannel.write(request);
+			}
+			buffer.clear();
+			int length = -1;
+			while (length < 0 || buffer.position() < length) {
+				if (socketChannel.read(buffer) < 0) {
+					throw new IOException("Connection closed");
+				}
+				if (length < 0) {
+					length = responseLength(buffer);
+				}
+			}
+		}
+		
+		private static int responseLength(ByteBuffer buffer) {
+			final String head = new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+			final int end = head.indexOf("\r\n\r\n");
+			if (end < 0) {
+				return -1;
+			}
+			int contentLength = 0;
+			for (String line : head.substring(0, end).split("\r\n")) {
+				if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+					contentLength = Integer.parseInt(line.substring(15).trim());
+				}
+			}
+			return end + 4 + contentLength;
+		}
+
+		@Override
+		public void close() throws IOException {
+			socketChannel.close();
+		}
+		
+	}
+
+}